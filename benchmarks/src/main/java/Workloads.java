@@ -0,0 +1,306 @@
+/*
+The Workloads class holds the work measured by the benchmarks.
+JMH only runs benchmarks from a named package while the game lives in the
+default package, so each workload here is a LongSupplier that the
+benchmarks in the bench package create by name and call through the
+interface. Every call is one operation and returns a value for the
+benchmark to consume.
+*/
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.function.LongSupplier;
+import javax.swing.JPanel;
+
+public final class Workloads {
+    // A one suit deal the solver wins quickly, its winning line provides
+    // realistic positions for every workload
+    private static final long SEED = 1;
+    private static final int SUITS = 1;
+
+    private static Board start;
+    private static int[] line;
+
+    private Workloads() {}
+
+    // Create a workload from its simple name
+    public static LongSupplier create(String name) throws ReflectiveOperationException {
+        return (LongSupplier) Class.forName("Workloads$" + name)
+                                   .getDeclaredConstructor().newInstance();
+    }
+
+    private static synchronized void solve() {
+        if (line != null)
+            return;
+        start = new Board(new Deck(SUITS, SEED).getCards());
+        Solver.Result result = new Solver().solve(start);
+        if (result.getStatus() != Solver.Status.WINNABLE)
+            throw new IllegalStateException("Benchmark deal is not solved");
+        line = result.getMoves();
+    }
+
+    // The position with the tallest column on the winning line
+    static Board midGame() {
+        solve();
+        Board board = new Board(start), best = new Board(start);
+        for (int move : line) {
+            board.make(move);
+            if (tallest(board) > tallest(best))
+                best = new Board(board);
+        }
+        return best;
+    }
+
+    // The position just before the first move that completes a stack
+    static Board beforeStack(int[] move) {
+        solve();
+        Board board = new Board(start);
+        for (int m : line) {
+            Board before = new Board(board);
+            if (Moves.removesStack(board.make(m))) {
+                move[0] = m;
+                return before;
+            }
+        }
+        throw new IllegalStateException("No stack is completed");
+    }
+
+    static int tallest(Board board) {
+        int column = 0;
+        for (int i = 1; i < Board.COLUMNS; i++)
+            if (board.size(i) > board.size(column))
+                column = i;
+        return board.size(column);
+    }
+
+    // The column with the longest movable run
+    static int longestRun(Board board) {
+        int column = 0;
+        for (int i = 1; i < Board.COLUMNS; i++)
+            if (board.size(i) - board.runStart(i)
+                > board.size(column) - board.runStart(column))
+                column = i;
+        return column;
+    }
+
+    // The legal move that carries the most cards
+    static int longestMove(Board board) {
+        int[] moves = new int[Board.MAX_MOVES];
+        int count = board.legalMoves(moves, 0), best = -1;
+        for (int i = 0; i < count; i++)
+            if (!Moves.isDeal(moves[i])
+                && (best < 0 || Moves.count(moves[i]) > Moves.count(moves[best])))
+                best = i;
+        if (best < 0)
+            throw new IllegalStateException("No move to measure");
+        return moves[best];
+    }
+
+    // Deck construction with a single shuffle
+    public static class DeckConstruction implements LongSupplier {
+        private long seed;
+
+        public long getAsLong() {
+            return new Deck(4, seed++).getSeed();
+        }
+    }
+
+    // One more shuffle of an existing deck
+    public static class DeckShuffle implements LongSupplier {
+        private final Deck deck = new Deck(4, SEED);
+
+        public long getAsLong() {
+            deck.shuffleDeck();
+            return deck.getSeed();
+        }
+    }
+
+    // Card.isStackGood on the longest run of the mid-game position
+    public static class StackGood implements LongSupplier {
+        private final Card card;
+
+        public StackGood() {
+            Board board = midGame();
+            int column = longestRun(board);
+            card = new Game(board).getPile(column).getCard(board.runStart(column));
+        }
+
+        public long getAsLong() {
+            return card.isStackGood() ? 1 : 0;
+        }
+    }
+
+    // Moving the longest run of the mid-game position and taking it back,
+    // the work Pile.addCard and Pile.removeStack used to do
+    public static class MoveRun implements LongSupplier {
+        private final Board board = midGame();
+        private final int move = longestMove(board);
+
+        public long getAsLong() {
+            board.unmake(board.make(move));
+            return board.hash();
+        }
+    }
+
+    // The same move with both pile views brought up to date each way
+    public static class MoveRunWithPiles implements LongSupplier {
+        private final Board board = midGame();
+        private final int move = longestMove(board);
+        private final Pile from, to;
+
+        public MoveRunWithPiles() {
+            Game game = new Game(board);
+            from = game.getPile(Moves.from(move));
+            to = game.getPile(Moves.to(move));
+        }
+
+        public long getAsLong() {
+            int played = board.make(move);
+            from.update();
+            to.update();
+            board.unmake(played);
+            from.update();
+            to.update();
+            return board.hash();
+        }
+    }
+
+    // A move that completes and removes a stack, and taking it back, the
+    // work Pile.checkForStack and Pile.findLastFaceUpKing used to do
+    public static class StackCheck implements LongSupplier {
+        private final int[] move = new int[1];
+        private final Board board = beforeStack(move);
+
+        public long getAsLong() {
+            board.unmake(board.make(move[0]));
+            return board.hash();
+        }
+    }
+
+    // Copying the mid-game position to branch off a simulation
+    public static class CopyBoard implements LongSupplier {
+        private final Board board = midGame();
+
+        public long getAsLong() {
+            return new Board(board).hash();
+        }
+    }
+
+    // Packing the mid-game position into its compact form, as kept for
+    // many positions at once
+    public static class PackBoard implements LongSupplier {
+        private final Board board = midGame();
+
+        public long getAsLong() {
+            return board.pack().length;
+        }
+    }
+
+    // Branching a snapshot of the mid-game position by its first legal
+    // move, which shares every untouched column instead of copying them
+    public static class PlaySnapshot implements LongSupplier {
+        private final Snapshot snapshot = new Snapshot(midGame());
+        private final int move;
+
+        public PlaySnapshot() {
+            int[] moves = new int[Board.MAX_MOVES];
+            snapshot.legalMoves(moves, 0);
+            move = moves[0];
+        }
+
+        public long getAsLong() {
+            return snapshot.play(move).hash();
+        }
+    }
+
+    // Painting every pile of the mid-game position into an offscreen image
+    public static class PaintBoard implements LongSupplier {
+        private final JPanel table = new JPanel(null);
+        private final BufferedImage image =
+            new BufferedImage(1920, 1080, BufferedImage.TYPE_INT_ARGB_PRE);
+
+        public PaintBoard() {
+            Game game = new Game(midGame());
+            table.setBackground(new Color(0, 0, 240));
+            table.setSize(image.getWidth(), image.getHeight());
+            for (int i = 0; i < Board.COLUMNS; i++) {
+                Pile pile = game.getPile(i);
+                pile.setLocation(i * 150 + 20, 20);
+                table.add(pile);
+                pile.doLayout();
+            }
+        }
+
+        public long getAsLong() {
+            Graphics2D g = image.createGraphics();
+            table.paint(g);
+            g.dispose();
+            return image.getRGB(100, 100);
+        }
+    }
+
+    // Painting the same position with the single canvas renderer
+    public static class PaintCanvas implements LongSupplier {
+        final BoardCanvas canvas = new BoardCanvas(new Game(midGame()));
+        final BufferedImage image =
+            new BufferedImage(1920, 1080, BufferedImage.TYPE_INT_ARGB_PRE);
+
+        public PaintCanvas() {
+            canvas.setSize(image.getWidth(), image.getHeight());
+        }
+
+        public long getAsLong() {
+            Graphics2D g = image.createGraphics();
+            canvas.paint(g);
+            g.dispose();
+            return image.getRGB(100, 100);
+        }
+    }
+
+    // Repainting only the dirty area of one column, as after a move
+    public static class PaintCanvasColumn extends PaintCanvas {
+        public long getAsLong() {
+            Graphics2D g = image.createGraphics();
+            g.clipRect(150, 0, 200, image.getHeight());
+            canvas.paint(g);
+            g.dispose();
+            return image.getRGB(200, 100);
+        }
+    }
+
+    // Setting up a new deal the way restarting used to, with new piles
+    // and card views
+    public static class NewGame implements LongSupplier {
+        private long seed;
+
+        public long getAsLong() {
+            Game game = new Game(new Board(new Deck(SUITS, seed++).getCards()));
+            return game.getBoard().hash();
+        }
+    }
+
+    // Restarting in place, binding the pooled card views to a new deal
+    public static class Restart implements LongSupplier {
+        private final Game game = new Game(new Board(new Deck(SUITS, SEED).getCards()));
+        private long seed;
+
+        public long getAsLong() {
+            game.restart(SUITS, seed++);
+            return game.getBoard().hash();
+        }
+    }
+
+    // A whole winning game played through the Game and Pile views
+    public static class Replay implements LongSupplier {
+        public Replay() {
+            solve();
+        }
+
+        public long getAsLong() {
+            Game game = new Game(new Board(start));
+            for (int move : line)
+                game.playMove(move);
+            return game.getBoard().getNumMoves();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+The GameBenchmarks class measures the hot paths of the game with JMH:
+dealing, run checks, moves, stack removal, copying positions, branching
+snapshots, painting with either renderer, starting new deals and whole
+games.
+The work itself is in the Workloads class of the default package.
+
+Run with: java -jar benchmarks/target/benchmarks.jar
+*/
+
+package bench;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import org.openjdk.jmh.annotations.*;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class GameBenchmarks {
+    private LongSupplier deckConstruction, deckShuffle, stackGood, moveRun,
+                         moveRunWithPiles, stackCheck, copyBoard, packBoard,
+                         playSnapshot, paintBoard, paintCanvas,
+                         paintCanvasColumn, newGame, restart, replay;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        deckConstruction = create("DeckConstruction");
+        deckShuffle = create("DeckShuffle");
+        stackGood = create("StackGood");
+        moveRun = create("MoveRun");
+        moveRunWithPiles = create("MoveRunWithPiles");
+        stackCheck = create("StackCheck");
+        copyBoard = create("CopyBoard");
+        packBoard = create("PackBoard");
+        playSnapshot = create("PlaySnapshot");
+        paintBoard = create("PaintBoard");
+        paintCanvas = create("PaintCanvas");
+        paintCanvasColumn = create("PaintCanvasColumn");
+        newGame = create("NewGame");
+        restart = create("Restart");
+        replay = create("Replay");
+    }
+
+    // The game classes are in the default package, which cannot be imported
+    private static LongSupplier create(String name) throws Exception {
+        Method create = Class.forName("Workloads").getMethod("create", String.class);
+        return (LongSupplier) create.invoke(null, name);
+    }
+
+    @Benchmark
+    public long deckConstruction() {
+        return deckConstruction.getAsLong();
+    }
+
+    @Benchmark
+    public long deckShuffle() {
+        return deckShuffle.getAsLong();
+    }
+
+    @Benchmark
+    public long stackGood() {
+        return stackGood.getAsLong();
+    }
+
+    @Benchmark
+    public long moveRun() {
+        return moveRun.getAsLong();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public long moveRunWithPiles() {
+        return moveRunWithPiles.getAsLong();
+    }
+
+    @Benchmark
+    public long stackCheck() {
+        return stackCheck.getAsLong();
+    }
+
+    @Benchmark
+    public long copyBoard() {
+        return copyBoard.getAsLong();
+    }
+
+    @Benchmark
+    public long packBoard() {
+        return packBoard.getAsLong();
+    }
+
+    @Benchmark
+    public long playSnapshot() {
+        return playSnapshot.getAsLong();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public long paintBoard() {
+        return paintBoard.getAsLong();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public long paintCanvas() {
+        return paintCanvas.getAsLong();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public long paintCanvasColumn() {
+        return paintCanvasColumn.getAsLong();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public long newGame() {
+        return newGame.getAsLong();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public long restart() {
+        return restart.getAsLong();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long replay() {
+        return replay.getAsLong();
+    }
+}
@@ -0,0 +1,98 @@
+/*
+The BoardTest class checks that making and unmaking moves on a Board
+restores every position exactly, that the hash kept move by move equals
+the hash of the position built from scratch, and that moves which cannot
+exist are rejected rather than thrown on.
+*/
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+class BoardTest {
+    private static final int DEALS = 200, MOVES = 300;
+
+    // Play random games forward, checking the hash after every move, then
+    // take every move back and compare with the positions on the way up
+    @Test
+    void makeAndUnmakeRestoreEveryPosition() {
+        RandomPlay play = new RandomPlay(1);
+        for (long seed = 1; seed <= DEALS; seed++) {
+            Board board = RandomPlay.deal(1 << (seed % 3), seed);
+            ArrayDeque<byte[]> positions = new ArrayDeque<>();
+            ArrayDeque<Long> hashes = new ArrayDeque<>();
+            ArrayDeque<Integer> played = new ArrayDeque<>();
+            for (int i = 0; i < MOVES && !board.isWon(); i++) {
+                int move = play.pick(board);
+                if (move < 0)
+                    break;
+                positions.push(board.pack());
+                hashes.push(board.hash());
+                played.push(board.make(move));
+                assertEquals(new Board(board.getDeck(), board.pack()).hash(), board.hash(),
+                             "hash after " + Moves.format(move) + " of deal " + seed);
+            }
+            while (!played.isEmpty()) {
+                board.unmake(played.pop());
+                assertArrayEquals(positions.pop(), board.pack(), "deal " + seed);
+                assertEquals((long) hashes.pop(), board.hash(), "deal " + seed);
+            }
+            assertArrayEquals(RandomPlay.deal(1 << (seed % 3), seed).pack(), board.pack());
+        }
+    }
+
+    // A copy made from a packed position plays on exactly like the original
+    @Test
+    void packedPositionsPlayOnAlike() {
+        RandomPlay play = new RandomPlay(2);
+        Board board = RandomPlay.deal(2, 42);
+        for (int i = 0; i < MOVES && !board.isWon(); i++) {
+            Board copy = new Board(board, board.pack());
+            int move = play.pick(board);
+            if (move < 0)
+                break;
+            assertEquals(Moves.plain(board.make(move)), Moves.plain(copy.make(move)));
+            assertArrayEquals(board.pack(), copy.pack());
+        }
+    }
+
+    // Every generated move is legal, and a move is only generated once
+    @Test
+    void legalMovesAreLegalAndDistinct() {
+        RandomPlay play = new RandomPlay(3);
+        int[] moves = new int[Board.MAX_MOVES];
+        for (long seed = 1; seed <= 50; seed++) {
+            Board board = RandomPlay.deal(4, seed);
+            for (int i = 0; i < MOVES && !board.isWon(); i++) {
+                int count = board.legalMoves(moves, 0);
+                int[] sorted = Arrays.copyOf(moves, count);
+                Arrays.sort(sorted);
+                for (int j = 0; j < count; j++) {
+                    assertTrue(board.isLegal(sorted[j]), Moves.format(sorted[j]));
+                    if (j > 0)
+                        assertNotEquals(sorted[j - 1], sorted[j]);
+                }
+                int move = play.pick(board);
+                if (move < 0)
+                    break;
+                board.make(move);
+            }
+        }
+    }
+
+    // Columns past the last, as a damaged save or upload may hold, are not
+    // legal and do not throw
+    @Test
+    void movesOffTheBoardAreIllegal() {
+        Board board = RandomPlay.deal(1, 7);
+        for (int column = Board.COLUMNS; column < 16; column++) {
+            assertFalse(board.isLegal(Moves.move(column, 0, 3)));
+            assertFalse(board.isLegal(Moves.move(3, 5, column)));
+            assertFalse(board.play(Moves.move(3, 5, column)));
+        }
+        assertFalse(board.isLegal(Moves.move(3, 127, 4)));
+        assertFalse(board.isLegal(Moves.move(3, 3, 3)));
+    }
+}
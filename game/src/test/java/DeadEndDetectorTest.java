@@ -0,0 +1,163 @@
+/*
+The DeadEndDetectorTest class checks the dead end detector against brute
+force over random games. The moves it tracks after each change must give
+the same answers as trying every legal move, and a position it proves dead
+must have no way to turn a card or complete a stack when every position
+reachable from it is explored with snapshots.
+*/
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import org.junit.jupiter.api.Test;
+
+class DeadEndDetectorTest {
+    private static final int ALL_COLUMNS = (1 << Board.COLUMNS) - 1;
+    private static final int DEALS = 300, MOVES = 1000;
+    private static final int EXPLORED = 50_000;
+
+    // Check by playing every legal move if one is useful: a deal, a move
+    // that turns a card or completes a stack, or a whole run built onto a
+    // card
+    private static boolean hasUsefulMove(Board board) {
+        if (board.isWon() || board.getNumDeals() > 0)
+            return true;
+        int[] moves = new int[Board.MAX_MOVES];
+        int count = board.legalMoves(moves, 0);
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            int from = Moves.from(move), to = Moves.to(move);
+            if (board.size(to) > 0 && Moves.start(move) == board.runStart(from))
+                return true;
+            int played = board.make(move);
+            board.unmake(played);
+            if (Moves.flips(played) || Moves.removesStack(played))
+                return true;
+        }
+        return false;
+    }
+
+    // The columns a move changed, all of them for a deal
+    private static int changed(int move) {
+        if (Moves.isDeal(move))
+            return ALL_COLUMNS;
+        return (1 << Moves.from(move)) | (1 << Moves.to(move));
+    }
+
+    // Keep one detector up to date move by move, undoing now and then, and
+    // compare it with brute force and with a detector that starts afresh
+    @Test
+    void trackedMovesMatchBruteForce() {
+        RandomPlay play = new RandomPlay(6);
+        DeadEndDetector tracked = new DeadEndDetector();
+        for (long seed = 1; seed <= DEALS; seed++) {
+            Board board = RandomPlay.deal(1 << (seed % 3), seed);
+            ArrayDeque<Integer> played = new ArrayDeque<>();
+            tracked.update(board, ALL_COLUMNS);
+            for (int i = 0; i < MOVES && !board.isWon(); i++) {
+                int move = play.pick(board);
+                if (move < 0)
+                    break;
+                if (!played.isEmpty() && play.nextInt(8) == 0) {
+                    int undone = played.pop();
+                    board.unmake(undone);
+                    tracked.update(board, changed(undone));
+                }
+                else {
+                    played.push(board.make(move));
+                    tracked.update(board, changed(move));
+                }
+
+                DeadEndDetector fresh = new DeadEndDetector();
+                fresh.update(new Board(board), 0);
+                String where = "deal " + seed + " move " + i;
+                assertEquals(hasUsefulMove(board), tracked.hasUsefulMove(), where);
+                assertEquals(fresh.hasUsefulMove(), tracked.hasUsefulMove(), where);
+                assertEquals(board.legalMoves(new int[Board.MAX_MOVES], 0) > 0,
+                             tracked.hasLegalMove(), where);
+            }
+        }
+    }
+
+    // Explore every position reachable without dealing, up to a limit, and
+    // tell whether any of them turns a card or completes a stack. Null if
+    // the limit was reached first.
+    private static Boolean canProgress(Board board) {
+        Snapshot start = new Snapshot(board);
+        int faceDown = faceDown(start);
+        HashSet<Snapshot> seen = new HashSet<>();
+        ArrayDeque<Snapshot> queue = new ArrayDeque<>();
+        seen.add(start);
+        queue.add(start);
+        int[] moves = new int[Board.MAX_MOVES];
+        while (!queue.isEmpty()) {
+            Snapshot position = queue.poll();
+            int count = position.legalMoves(moves, 0);
+            for (int i = 0; i < count; i++) {
+                if (Moves.isDeal(moves[i]))
+                    continue;
+                Snapshot next = position.play(moves[i]);
+                if (next.getNumStacks() > start.getNumStacks() || faceDown(next) < faceDown)
+                    return true;
+                if (seen.add(next)) {
+                    if (seen.size() > EXPLORED)
+                        return null;
+                    queue.add(next);
+                }
+            }
+        }
+        return false;
+    }
+
+    private static int faceDown(Snapshot snapshot) {
+        int count = 0;
+        for (int i = 0; i < Board.COLUMNS; i++)
+            count += snapshot.faceDown(i);
+        return count;
+    }
+
+    // Prove every position where a random game runs out of useful moves and
+    // compare with exploring it. Random play then tends to stay in the dead
+    // end for hundreds of moves, those positions are left out.
+    @Test
+    void proofsMatchExploration() {
+        RandomPlay play = new RandomPlay(7);
+        DeadEndDetector detector = new DeadEndDetector();
+        int dead = 0, alive = 0;
+        for (long seed = 1; seed <= DEALS; seed++) {
+            Board board = RandomPlay.deal(1 << (seed % 3), seed);
+            detector.update(board, ALL_COLUMNS);
+            boolean useful = true;
+            for (int i = 0; i < MOVES && !board.isWon(); i++) {
+                int move = play.pick(board);
+                if (move < 0)
+                    break;
+                board.make(move);
+                detector.update(board, changed(move));
+                boolean wasUseful = useful;
+                useful = detector.hasUsefulMove();
+                if (useful || !wasUseful)
+                    continue;
+                byte[] before = board.pack();
+                DeadEndDetector.Verdict verdict =
+                    DeadEndDetector.prove(board, DeadEndDetector.DEFAULT_NODES);
+                assertArrayEquals(before, board.pack(), "prove changed the board");
+                if (verdict == DeadEndDetector.Verdict.UNKNOWN)
+                    continue;
+                Boolean progress = canProgress(board);
+                if (progress == null)
+                    continue;
+                String where = "deal " + seed + " move " + i;
+                assertEquals(progress, verdict == DeadEndDetector.Verdict.ALIVE, where);
+                if (progress)
+                    alive++;
+                else
+                    dead++;
+            }
+        }
+        // The random games must reach both kinds of position for the
+        // comparison to mean anything
+        assertTrue(dead > 0 && alive > 0, dead + " dead, " + alive + " alive");
+    }
+}
@@ -0,0 +1,37 @@
+/*
+The RandomPlay class plays random legal moves on numbered deals, so tests
+can check the rules against many positions of real games. Each deal is
+played from a fixed seed, so a failure can be played back.
+*/
+
+import java.util.Random;
+
+final class RandomPlay {
+    private final Random random;
+    private final int[] moves = new int[Board.MAX_MOVES];
+
+    RandomPlay(long seed) {
+        random = new Random(seed);
+    }
+
+    // Deal a numbered game at a suit count
+    static Board deal(int suits, long seed) {
+        return new Board(new Deck(suits, seed).getCards());
+    }
+
+    // Pick a random legal move, or -1 when there is none. Deals are picked
+    // less often so that games last.
+    int pick(Board board) {
+        int count = board.legalMoves(moves, 0);
+        if (count == 0)
+            return -1;
+        int move = moves[random.nextInt(count)];
+        if (Moves.isDeal(move) && count > 1 && random.nextInt(4) != 0)
+            move = moves[random.nextInt(count - 1)];
+        return move;
+    }
+
+    int nextInt(int bound) {
+        return random.nextInt(bound);
+    }
+}
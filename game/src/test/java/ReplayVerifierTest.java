@@ -0,0 +1,131 @@
+/*
+The ReplayVerifierTest class checks that the verifier passes replays of
+legal games and reports every kind of bad input as an illegal replay, one
+report line each, without stopping the run.
+*/
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ReplayVerifierTest {
+    @TempDir
+    Path directory;
+
+    // Play a random game of a deal and write it as a replay line
+    private static String replay(long seed, int suits, int moves) {
+        Board board = RandomPlay.deal(suits, seed);
+        RandomPlay play = new RandomPlay(seed);
+        StringBuilder line = new StringBuilder(seed + " " + suits);
+        for (int i = 0; i < moves; i++) {
+            int move = play.pick(board);
+            if (move < 0)
+                break;
+            board.make(move);
+            line.append(' ').append(Moves.format(move));
+        }
+        return line.toString();
+    }
+
+    private static String[] fields(String report) {
+        return report.split(",", -1);
+    }
+
+    @Test
+    void legalReplayPasses() {
+        String[] report = fields(new ReplayVerifier().verifyLine("a", replay(3, 2, 200)));
+        assertEquals("true", report[3]);
+        assertEquals("", report[4]);
+    }
+
+    @Test
+    void firstIllegalMoveIsReported() {
+        String[] parts = replay(3, 1, 50).split(" ");
+        // Play the first move from the tenth on twice, the second time its
+        // run is gone
+        int index = 11;
+        while (parts[index].equals("D"))
+            index++;
+        List<String> moves = new ArrayList<>(List.of(parts));
+        moves.add(index + 1, parts[index]);
+        String[] report = fields(new ReplayVerifier().verifyLine("a", String.join(" ", moves)));
+        assertEquals("false", report[3]);
+        assertEquals(String.valueOf(index - 1), report[4]);
+    }
+
+    @Test
+    void badInputIsIllegal() {
+        ReplayVerifier verifier = new ReplayVerifier();
+        String[] lines = {"", "x", "7", "7 3", "7 1 nonsense", "7 two", "7 1 99999999999"};
+        for (String line : lines)
+            assertEquals("false", fields(verifier.verifyLine("a", line))[3], line);
+        int[] offBoard = {Moves.move(15, 0, 14), Moves.move(0, 120, 12), Moves.move(12, 0, 0)};
+        for (int move : offBoard)
+            assertEquals("false", fields(verifier.verify("a", 7, 1, new int[] {move}))[3]);
+    }
+
+    // One crafted save among good replays must not end the run
+    @Test
+    void runReportsEveryReplay() throws IOException {
+        Path save = directory.resolve("crafted.save");
+        try (SaveFile file = SaveFile.create(save, 7, 1)) {
+            Board board = RandomPlay.deal(1, 7);
+            MoveJournal journal = new MoveJournal();
+            journal.record(board.make(new RandomPlay(7).pick(board)));
+            file.write(board, journal, 0);
+        }
+        try (FileChannel channel = FileChannel.open(save, StandardOpenOption.WRITE)) {
+            ByteBuffer move = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            move.putInt(Moves.move(15, 0, 14)).flip();
+            channel.write(move, 48);
+        }
+        Files.write(directory.resolve("damaged.save"), new byte[10]);
+        Files.write(directory.resolve("replays.txt"),
+                    List.of("# comment", replay(1, 1, 100), "garbage", "", replay(2, 4, 100)));
+
+        StringWriter text = new StringWriter();
+        try (PrintWriter out = new PrintWriter(text)) {
+            new ReplayVerifier().run(directory, out);
+        }
+        String[] report = text.toString().split("\\R");
+        assertEquals(6, report.length, text.toString());
+        assertTrue(report[0].startsWith("replay,"));
+        assertTrue(report[1].contains("crafted.save,7,1,false,0,"), report[1]);
+        assertTrue(report[2].contains("damaged.save,,,false"), report[2]);
+        assertTrue(report[3].contains("replays.txt:2,1,1,true"), report[3]);
+        assertTrue(report[4].contains("replays.txt:3,,,false"), report[4]);
+        assertTrue(report[5].contains("replays.txt:5,2,4,true"), report[5]);
+    }
+
+    // Files longer than one block keep their line numbers and order
+    @Test
+    void longFilesAreNumberedInOrder() throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++)
+            lines.add(i % 1000 == 999 ? "bad" : (i + 1) + " 1");
+        Files.write(directory.resolve("many.txt"), lines);
+        StringWriter text = new StringWriter();
+        try (PrintWriter out = new PrintWriter(text)) {
+            new ReplayVerifier().run(directory, out);
+        }
+        String[] report = text.toString().split("\\R");
+        assertEquals(lines.size() + 1, report.length);
+        for (int i = 0; i < lines.size(); i++) {
+            String[] row = fields(report[i + 1]);
+            assertTrue(row[0].endsWith("many.txt:" + (i + 1)), row[0]);
+            assertEquals(String.valueOf(i % 1000 != 999), row[3]);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/*
+The SaveFileTest class checks that a saved game comes back as it was left,
+undone moves included, and that a damaged or edited save is refused with
+an IOException instead of failing somewhere in the game.
+*/
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SaveFileTest {
+    // Offsets of the header fields, as SaveFile writes them
+    private static final int SUITS = 16, COUNT = 32, TOP = 36, HEADER = 48;
+
+    @TempDir
+    Path directory;
+
+    // Play a game, saving after every move, and take back the last few
+    private Board playAndSave(Path path, MoveJournal journal, int moves, int undone)
+            throws IOException {
+        Board board = RandomPlay.deal(2, 99);
+        RandomPlay play = new RandomPlay(99);
+        try (SaveFile save = SaveFile.create(path, 99, 2)) {
+            for (int i = 0; i < moves; i++) {
+                int move = play.pick(board);
+                if (move < 0)
+                    break;
+                journal.record(board.make(move));
+                save.write(board, journal, journal.size() - 1);
+            }
+            for (int i = 0; i < undone; i++) {
+                journal.undo(board);
+                save.write(board, journal, -1);
+            }
+        }
+        return board;
+    }
+
+    private static void putInt(Path path, int offset, int value) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES)
+                                          .order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(value).flip();
+            channel.write(buffer, offset);
+        }
+    }
+
+    @Test
+    void restoreReturnsToTheSavedPosition() throws IOException {
+        Path path = directory.resolve("game.save");
+        MoveJournal saved = new MoveJournal();
+        Board board = playAndSave(path, saved, 400, 5);
+
+        try (SaveFile save = SaveFile.open(path)) {
+            assertEquals(99, save.getSeed());
+            assertEquals(2, save.getSuits());
+            assertEquals(saved.size(), save.getMoves().length);
+            Board restored = RandomPlay.deal(2, 99);
+            MoveJournal journal = new MoveJournal();
+            save.restore(restored, journal);
+            assertArrayEquals(board.pack(), restored.pack());
+            assertEquals(saved.size(), journal.size());
+            assertEquals(saved.limit(), journal.limit());
+
+            // The undone moves can still be redone
+            while (journal.canRedo()) {
+                journal.redo(restored);
+                saved.redo(board);
+            }
+            assertArrayEquals(board.pack(), restored.pack());
+        }
+    }
+
+    // A log longer than the first mapping is remapped and still read back
+    @Test
+    void saveGrowsPastItsFirstMapping() throws IOException {
+        Path path = directory.resolve("long.save");
+        // A lone ace on an otherwise empty table, moved round the columns
+        byte[] packed = new byte[7 + 2 * Board.COLUMNS + 1];
+        packed[0] = (byte) Board.DECK_SIZE;
+        packed[7] = 1;
+        packed[9] = Board.code(1, 0);
+        Board board = new Board(new Deck(1, 5).getCards(), packed);
+        MoveJournal journal = new MoveJournal();
+        int count = 17_000;
+        try (SaveFile save = SaveFile.create(path, 5, 1)) {
+            for (int i = 0; i < count; i++) {
+                int from = i % Board.COLUMNS, to = (i + 1) % Board.COLUMNS;
+                assertTrue(board.isLegal(Moves.move(from, 0, to)));
+                journal.record(board.make(Moves.move(from, 0, to)));
+                save.write(board, journal, i);
+            }
+        }
+        assertTrue(Files.size(path) > HEADER + count * Integer.BYTES);
+        try (SaveFile save = SaveFile.openReadOnly(path)) {
+            int[] moves = save.getMoves();
+            assertEquals(count, moves.length);
+            for (int i = 0; i < count; i++)
+                assertEquals(Moves.plain(journal.get(i)), moves[i]);
+        }
+    }
+
+    @Test
+    void moveOffTheBoardIsRefused() throws IOException {
+        Path path = directory.resolve("game.save");
+        playAndSave(path, new MoveJournal(), 20, 0);
+        putInt(path, HEADER + 3 * Integer.BYTES, Moves.move(15, 0, 14));
+        try (SaveFile save = SaveFile.open(path)) {
+            IOException e = assertThrows(IOException.class,
+                () -> save.restore(RandomPlay.deal(2, 99), new MoveJournal()));
+            assertTrue(e.getMessage().contains("illegal move at 3"), e.getMessage());
+        }
+    }
+
+    @Test
+    void damagedHeadersAreRefused() throws IOException {
+        int[][] damage = {{SUITS, 3}, {SUITS, 0}, {SUITS, -4}, {COUNT, -1},
+                          {TOP, -1}, {TOP, 0}, {COUNT, 1 << 20}, {TOP, 1 << 20},
+                          {0, 0x12345678}};
+        for (int[] field : damage) {
+            Path path = directory.resolve("damaged" + field[0] + "_" + field[1] + ".save");
+            playAndSave(path, new MoveJournal(), 20, 0);
+            putInt(path, field[0], field[1]);
+            assertThrows(IOException.class, () -> SaveFile.open(path).close(),
+                         "offset " + field[0] + " = " + field[1]);
+            assertThrows(IOException.class, () -> SaveFile.openReadOnly(path).close());
+        }
+    }
+
+    @Test
+    void shortFileIsRefused() throws IOException {
+        Path path = directory.resolve("short.save");
+        Files.write(path, new byte[HEADER - 1]);
+        assertThrows(IOException.class, () -> SaveFile.open(path));
+    }
+
+    @Test
+    void readOnlySaveIsNotWritten() throws IOException {
+        Path path = directory.resolve("game.save");
+        MoveJournal journal = new MoveJournal();
+        Board board = playAndSave(path, journal, 10, 0);
+        byte[] before = Files.readAllBytes(path);
+        try (SaveFile save = SaveFile.openReadOnly(path)) {
+            assertThrows(IOException.class, () -> save.write(board, journal, -1));
+        }
+        assertArrayEquals(before, Files.readAllBytes(path));
+    }
+
+    // A closed save can be replaced and deleted
+    @Test
+    void closedSaveCanBeReplacedAndDeleted() throws IOException {
+        Path path = directory.resolve("game.save");
+        playAndSave(path, new MoveJournal(), 50, 0);
+        SaveFile.openReadOnly(path).close();
+        try (SaveFile save = SaveFile.create(path, 7, 1)) {
+            assertEquals(0, save.getMoves().length);
+            save.delete();
+        }
+        assertFalse(Files.exists(path));
+    }
+}
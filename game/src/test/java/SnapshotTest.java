@@ -0,0 +1,103 @@
+/*
+The SnapshotTest class plays the same random games on a Board and on
+snapshots and checks that they agree move for move: legal moves, packed
+positions and hashes. It also checks that playing leaves the parent as it
+was and shares every column the move did not touch.
+*/
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.reflect.Field;
+import org.junit.jupiter.api.Test;
+
+class SnapshotTest {
+    private static final int DEALS = 150, MOVES = 300;
+
+    // The columns of a snapshot, which are private to it
+    private static Object[] columns(Snapshot snapshot) throws ReflectiveOperationException {
+        Field field = Snapshot.class.getDeclaredField("columns");
+        field.setAccessible(true);
+        return (Object[]) field.get(snapshot);
+    }
+
+    @Test
+    void snapshotsPlayLikeTheBoard() {
+        RandomPlay play = new RandomPlay(4);
+        int[] boardMoves = new int[Board.MAX_MOVES], snapshotMoves = new int[Board.MAX_MOVES];
+        for (long seed = 1; seed <= DEALS; seed++) {
+            Board board = RandomPlay.deal(1 << (seed % 3), seed);
+            Snapshot snapshot = new Snapshot(board);
+            for (int i = 0; i < MOVES && !board.isWon(); i++) {
+                int count = board.legalMoves(boardMoves, 0);
+                assertEquals(count, snapshot.legalMoves(snapshotMoves, 0));
+                for (int j = 0; j < count; j++)
+                    assertEquals(boardMoves[j], snapshotMoves[j]);
+                int move = play.pick(board);
+                if (move < 0)
+                    break;
+                board.make(move);
+                snapshot = snapshot.play(move);
+                assertNotNull(snapshot);
+                assertArrayEquals(board.pack(), snapshot.pack(), "deal " + seed);
+                assertEquals(board.hash(), snapshot.hash());
+                assertEquals(board.isWon(), snapshot.isWon());
+            }
+            assertArrayEquals(board.pack(), snapshot.toBoard().pack());
+        }
+    }
+
+    @Test
+    void playSharesUntouchedColumns() throws ReflectiveOperationException {
+        RandomPlay play = new RandomPlay(5);
+        for (long seed = 1; seed <= 20; seed++) {
+            Board board = RandomPlay.deal(2, seed);
+            Snapshot parent = new Snapshot(board);
+            for (int i = 0; i < MOVES && !board.isWon(); i++) {
+                int move = play.pick(board);
+                if (move < 0)
+                    break;
+                byte[] before = parent.pack();
+                Snapshot child = parent.play(move);
+                board.make(move);
+                assertArrayEquals(before, parent.pack(), "the parent changed");
+
+                Object[] a = columns(parent), b = columns(child);
+                for (int column = 0; column < Board.COLUMNS; column++) {
+                    boolean touched = Moves.isDeal(move) || column == Moves.from(move)
+                                      || column == Moves.to(move);
+                    assertEquals(!touched, a[column] == b[column],
+                                 "column " + column + " after " + Moves.format(move));
+                }
+                parent = child;
+            }
+        }
+    }
+
+    // Positions reached by different orders of moves are equal and hash
+    // alike, whatever the number of moves
+    @Test
+    void equalPositionsAreEqual() {
+        Board board = RandomPlay.deal(1, 11);
+        Snapshot start = new Snapshot(board);
+        int[] moves = new int[Board.MAX_MOVES];
+        int count = start.legalMoves(moves, 0);
+        for (int i = 0; i < count; i++) {
+            if (Moves.isDeal(moves[i]))
+                continue;
+            Snapshot moved = start.play(moves[i]);
+            Snapshot copy = new Snapshot(moved.toBoard());
+            assertEquals(moved, copy);
+            assertEquals(moved.hashCode(), copy.hashCode());
+            assertNotEquals(start, moved);
+        }
+    }
+
+    @Test
+    void illegalMovesReturnNull() {
+        Snapshot snapshot = new Snapshot(RandomPlay.deal(1, 7));
+        assertNull(snapshot.play(Moves.move(15, 0, 14)));
+        assertNull(snapshot.play(Moves.move(3, 0, 12)));
+        assertNull(snapshot.play(Moves.move(3, 0, 4)));
+        assertNull(snapshot.play(Moves.move(3, 3, 3)));
+    }
+}
@@ -0,0 +1,141 @@
+/*
+The BatchSolver class solves a range of numbered deals on every core and
+writes a catalogue line for each deal with its result, the number of
+positions searched and the time taken.
+The range is split on a fork/join pool down to single deals, so idle
+workers steal deals from busy ones and a hard deal never holds up the rest.
+Solving never blocks, so the pool keeps one platform thread per core,
+virtual threads would only schedule the same work onto the same cores.
+
+Usage: java BatchSolver <first deal> <last deal> <suits 1|2|4> [catalogue]
+                        [-nodes N] [-millis N] [-threads N]
+*/
+
+import java.io.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+public class BatchSolver {
+    private final int suits;
+    private final PrintWriter out;
+    private final ThreadLocal<Solver> solvers;
+    private final LongAdder done = new LongAdder();
+    private final LongAdder[] counts = new LongAdder[Solver.Status.values().length];
+
+    // Constructor for a batch writing its catalogue to out
+    public BatchSolver(int suits, long maxNodes, long maxMillis, PrintWriter out) {
+        this.suits = suits;
+        this.out = out;
+        // Each worker keeps its own solver and transposition table
+        solvers = ThreadLocal.withInitial(
+            () -> new Solver(maxNodes, maxMillis, Solver.DEFAULT_TABLE));
+        for (int i = 0; i < counts.length; i++)
+            counts[i] = new LongAdder();
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3) {
+            System.err.println("Usage: java BatchSolver <first deal> <last deal>"
+                               + " <suits 1|2|4> [catalogue] [-nodes N]"
+                               + " [-millis N] [-threads N]");
+            System.exit(1);
+        }
+        long first = Long.parseLong(args[0]);
+        long last = Long.parseLong(args[1]);
+        int suits = Integer.parseInt(args[2]);
+        if (suits != 1 && suits != 2 && suits != 4)
+            throw new IllegalArgumentException("Suits must be 1, 2 or 4");
+        if (last < first)
+            throw new IllegalArgumentException("Last deal is before the first");
+
+        String file = null;
+        long nodes = Solver.DEFAULT_NODES, millis = Solver.DEFAULT_MILLIS;
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 3; i < args.length; i++) {
+            switch (args[i]) {
+                case "-nodes":
+                    nodes = Long.parseLong(args[++i]);
+                    break;
+                case "-millis":
+                    millis = Long.parseLong(args[++i]);
+                    break;
+                case "-threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    file = args[i];
+                    break;
+            }
+        }
+
+        Writer writer = file == null ? new OutputStreamWriter(System.out)
+                                     : new FileWriter(file);
+        try (PrintWriter out = new PrintWriter(new BufferedWriter(writer))) {
+            out.println("deal,suits,status,nodes,millis");
+            new BatchSolver(suits, nodes, millis, out).run(first, last, threads);
+        }
+    }
+
+    // Solve every deal from first to last inclusive, reporting progress on
+    // standard error
+    public void run(long first, long last, int threads) {
+        long total = last - first + 1;
+        long begin = System.nanoTime();
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+        reporter.scheduleAtFixedRate(() -> report(total, begin),
+                                     10, 10, TimeUnit.SECONDS);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            pool.invoke(new Range(first, last));
+        }
+        finally {
+            pool.shutdown();
+            reporter.shutdownNow();
+        }
+        report(total, begin);
+    }
+
+    // Solve one deal and add it to the catalogue
+    private void solve(long seed) {
+        Board board = new Board(new Deck(suits, seed).getCards());
+        Solver.Result result = solvers.get().solve(board);
+        counts[result.getStatus().ordinal()].increment();
+        done.increment();
+        String line = seed + "," + suits + "," + result.getStatus() + ","
+                      + result.getNodes() + "," + result.getMillis();
+        synchronized (out) {
+            out.println(line);
+        }
+    }
+
+    private void report(long total, long begin) {
+        long solved = done.sum();
+        double seconds = (System.nanoTime() - begin) / 1e9;
+        System.err.printf("%d/%d deals (%.1f%%)  winnable %d  unwinnable %d"
+                          + "  unknown %d  %.1f deals/s%n",
+                          solved, total, 100.0 * solved / total,
+                          counts[Solver.Status.WINNABLE.ordinal()].sum(),
+                          counts[Solver.Status.UNWINNABLE.ordinal()].sum(),
+                          counts[Solver.Status.UNKNOWN.ordinal()].sum(),
+                          solved / Math.max(seconds, 1e-9));
+    }
+
+    // A range of deals, split in halves until a task is a single deal
+    private class Range extends RecursiveAction {
+        private final long first, last;
+
+        Range(long first, long last) {
+            this.first = first;
+            this.last = last;
+        }
+
+        protected void compute() {
+            if (first == last) {
+                solve(first);
+                return;
+            }
+            long middle = first + (last - first) / 2;
+            invokeAll(new Range(first, middle), new Range(middle + 1, last));
+        }
+    }
+}
@@ -0,0 +1,512 @@
+/*
+The Board class is the headless model of a Spider Solitaire game.
+Cards are encoded as bytes, the tableau as ten compact columns with a
+face-down count each, and the stock as an index into the dealt order.
+It holds all of the rules and has no dependency on Swing.
+A Zobrist hash of the position is kept up to date with every change, and
+so is, for every face-up card, where the suited run ending at it begins.
+That makes run checks, finding the movable run and spotting a completed
+stack constant time lookups instead of scans.
+*/
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+public class Board {
+    public static final int COLUMNS = 10;
+    public static final int DECK_SIZE = 104;
+    public static final int DEALS = 5;
+    public static final int STACKS = 8;
+    public static final int KING = 13;
+
+    // Enough room for every legal move of any position, see legalMoves
+    public static final int MAX_MOVES = COLUMNS * (COLUMNS - 1) * (KING - 1) + 1;
+
+    // The largest array pack returns
+    public static final int PACKED_SIZE = 7 + 2 * COLUMNS + DECK_SIZE;
+    private static final int PACKED_HEADER = 7;
+
+    private final byte[] stock;
+    private int stockIndex;
+    private final byte[][] columns;
+    private final int[] sizes;
+    private final int[] faceDown;
+    // The index where the suited run ending at each face-up card begins,
+    // entries of face-down cards are not used
+    private final byte[][] runBegin;
+    private int numStacks, numDeals, numMoves;
+    private long hash;
+
+    // Zobrist keys for a card code at a column position, the face-down
+    // count of a column and the position of the stock
+    private static final long[][] CARD_KEYS = new long[COLUMNS][DECK_SIZE << 6];
+    private static final long[][] FACE_DOWN_KEYS = new long[COLUMNS][DECK_SIZE + 1];
+    private static final long[] STOCK_KEYS = new long[DECK_SIZE + 1];
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x5D1DE5L);
+        for (int i = 0; i < COLUMNS; i++) {
+            for (int j = 0; j < CARD_KEYS[i].length; j++)
+                CARD_KEYS[i][j] = random.nextLong();
+            for (int j = 0; j <= DECK_SIZE; j++)
+                FACE_DOWN_KEYS[i][j] = random.nextLong();
+        }
+        for (int i = 0; i <= DECK_SIZE; i++)
+            STOCK_KEYS[i] = random.nextLong();
+    }
+
+    // Constructor for a new game from a deck of card codes in deal order
+    public Board(byte[] deck) {
+        if (deck.length != DECK_SIZE)
+            throw new IllegalArgumentException("Deck must hold "
+                                               + DECK_SIZE + " cards");
+        stock = deck.clone();
+        columns = new byte[COLUMNS][DECK_SIZE];
+        runBegin = new byte[COLUMNS][DECK_SIZE];
+        sizes = new int[COLUMNS];
+        faceDown = new int[COLUMNS];
+        numDeals = DEALS;
+
+        // The first four columns get six cards and the rest get five, only
+        // the last card of each column is face up
+        for (int i = 0; i < COLUMNS; i++) {
+            int numCards = i < 4 ? 6 : 5;
+            for (int j = 0; j < numCards; j++)
+                columns[i][j] = stock[stockIndex++];
+            sizes[i] = numCards;
+            faceDown[i] = numCards - 1;
+            link(i, numCards - 1);
+        }
+        hash = computeHash();
+    }
+
+    // Copy constructor, used to branch off simulations
+    public Board(Board other) {
+        stock = other.stock;
+        stockIndex = other.stockIndex;
+        columns = new byte[COLUMNS][];
+        runBegin = new byte[COLUMNS][];
+        for (int i = 0; i < COLUMNS; i++) {
+            columns[i] = other.columns[i].clone();
+            runBegin[i] = other.runBegin[i].clone();
+        }
+        sizes = other.sizes.clone();
+        faceDown = other.faceDown.clone();
+        numStacks = other.numStacks;
+        numDeals = other.numDeals;
+        numMoves = other.numMoves;
+        hash = other.hash;
+    }
+
+    // Constructor for a position of the same deal as another board, from
+    // what pack returned. The stock is shared with that board.
+    public Board(Board deal, byte[] packed) {
+        this(deal.stock, packed);
+    }
+
+    // Constructor for a position of a deck in deal order, from what pack
+    // returned. The deck is shared, not copied, and must not change.
+    public Board(byte[] deck, byte[] packed) {
+        stock = deck;
+        stockIndex = packed[0];
+        numStacks = packed[1];
+        numDeals = packed[2];
+        numMoves = ((packed[3] & 0xFF) << 24) | ((packed[4] & 0xFF) << 16)
+                   | ((packed[5] & 0xFF) << 8) | (packed[6] & 0xFF);
+        columns = new byte[COLUMNS][DECK_SIZE];
+        runBegin = new byte[COLUMNS][DECK_SIZE];
+        sizes = new int[COLUMNS];
+        faceDown = new int[COLUMNS];
+        int position = PACKED_HEADER;
+        for (int i = 0; i < COLUMNS; i++) {
+            sizes[i] = packed[position++];
+            faceDown[i] = packed[position++];
+            System.arraycopy(packed, position, columns[i], 0, sizes[i]);
+            position += sizes[i];
+            for (int j = faceDown[i]; j < sizes[i]; j++)
+                link(i, j);
+        }
+        hash = computeHash();
+    }
+
+    // Pack the position into at most PACKED_SIZE bytes: the stock index,
+    // the stack, deal and move counts, then the size, face-down count and
+    // card codes of every column. Positions of one deal are equal when
+    // their packed arrays are, the cards themselves are only byte codes.
+    public byte[] pack() {
+        int length = PACKED_HEADER + 2 * COLUMNS;
+        for (int i = 0; i < COLUMNS; i++)
+            length += sizes[i];
+        byte[] packed = new byte[length];
+        packed[0] = (byte) stockIndex;
+        packed[1] = (byte) numStacks;
+        packed[2] = (byte) numDeals;
+        packed[3] = (byte) (numMoves >>> 24);
+        packed[4] = (byte) (numMoves >>> 16);
+        packed[5] = (byte) (numMoves >>> 8);
+        packed[6] = (byte) numMoves;
+        int position = PACKED_HEADER;
+        for (int i = 0; i < COLUMNS; i++) {
+            packed[position++] = (byte) sizes[i];
+            packed[position++] = (byte) faceDown[i];
+            System.arraycopy(columns[i], 0, packed, position, sizes[i]);
+            position += sizes[i];
+        }
+        return packed;
+    }
+
+    // Hash the whole position from scratch
+    private long computeHash() {
+        long h = STOCK_KEYS[stockIndex];
+        for (int i = 0; i < COLUMNS; i++) {
+            h ^= FACE_DOWN_KEYS[i][faceDown[i]];
+            for (int j = 0; j < sizes[i]; j++)
+                h ^= cardKey(i, j, columns[i][j]);
+        }
+        return h;
+    }
+
+    // The Zobrist keys, shared with Snapshot so that both hash a position
+    // the same
+    static long cardKey(int column, int index, int code) {
+        return CARD_KEYS[column][(index << 6) | code];
+    }
+
+    static long faceDownKey(int column, int count) {
+        return FACE_DOWN_KEYS[column][count];
+    }
+
+    static long stockKey(int stockIndex) {
+        return STOCK_KEYS[stockIndex];
+    }
+
+    // Card codes keep the suit in the high bits and the value in the low bits
+    public static byte code(int value, int suit) {
+        return (byte) ((suit << 4) | value);
+    }
+
+    public static int value(int code) {
+        return code & 0x0F;
+    }
+
+    public static int suit(int code) {
+        return (code >> 4) & 0x03;
+    }
+
+    // Check if the cards from start to the end of a column can be moved
+    // together, they must be face up and form a suited descending run
+    public boolean isRun(int column, int start) {
+        int size = sizes[column];
+        if (start < faceDown[column] || start >= size)
+            return false;
+        return start >= runBegin[column][size - 1];
+    }
+
+    // Find where the movable run at the end of a column begins
+    public int runStart(int column) {
+        int size = sizes[column];
+        return size == 0 ? 0 : runBegin[column][size - 1];
+    }
+
+    // Get the number of cards in the movable run at the end of a column
+    public int runLength(int column) {
+        return sizes[column] - runStart(column);
+    }
+
+    // Record where the run ending at a face-up card begins, from the card
+    // above it
+    private void link(int column, int index) {
+        byte[] begin = runBegin[column];
+        if (index > faceDown[column]
+            && follows(columns[column][index - 1], columns[column][index]))
+            begin[index] = begin[index - 1];
+        else
+            begin[index] = (byte) index;
+    }
+
+    // Link a run placed at index, its cards all begin where the first does
+    private void linkRun(int column, int index, int count) {
+        link(column, index);
+        Arrays.fill(runBegin[column], index + 1, index + count,
+                    runBegin[column][index]);
+    }
+
+    // Check if a card can be placed directly below another
+    static boolean follows(int upper, int lower) {
+        return value(upper) == value(lower) + 1 && suit(upper) == suit(lower);
+    }
+
+    // Check if the run starting at start can be moved onto another column.
+    // Columns out of range, such as from a damaged save, are never legal.
+    public boolean canMove(int from, int start, int to) {
+        if (from == to || from < 0 || from >= COLUMNS || to < 0 || to >= COLUMNS
+            || !isRun(from, start))
+            return false;
+        return sizes[to] == 0 || follows(columns[to][sizes[to] - 1],
+                                         columns[from][start]);
+    }
+
+    // Move a run onto another column, flipping the card it uncovers and
+    // removing a completed stack from the destination
+    public boolean move(int from, int start, int to) {
+        if (!canMove(from, start, to))
+            return false;
+        make(Moves.move(from, start, to));
+        return true;
+    }
+
+    // Check if a deal is allowed, there must be no empty column
+    public boolean canDeal() {
+        if (numDeals == 0 || stockIndex + COLUMNS > DECK_SIZE)
+            return false;
+        for (int i = 0; i < COLUMNS; i++)
+            if (sizes[i] == 0)
+                return false;
+        return true;
+    }
+
+    // Deal one face up card from the stock to every column
+    public boolean deal() {
+        if (!canDeal())
+            return false;
+        make(Moves.DEAL);
+        return true;
+    }
+
+    // Check if a move packed by the Moves class is legal
+    public boolean isLegal(int move) {
+        if (Moves.isDeal(move))
+            return canDeal();
+        return canMove(Moves.from(move), Moves.start(move), Moves.to(move));
+    }
+
+    // Play a move packed by the Moves class, if it is legal
+    public boolean play(int move) {
+        if (!isLegal(move))
+            return false;
+        make(move);
+        return true;
+    }
+
+    // Write every legal move into the buffer from offset on and return how
+    // many there are. Nothing is allocated. Each part of a run may go into
+    // any empty column, but only one card of a run can continue a card.
+    public int legalMoves(int[] moves, int offset) {
+        int count = offset;
+        for (int from = 0; from < COLUMNS; from++) {
+            int size = sizes[from];
+            if (size == 0)
+                continue;
+            int runStart = runStart(from);
+            int fd = faceDown[from];
+            int bottom = value(columns[from][size - 1]);
+
+            for (int to = 0; to < COLUMNS; to++) {
+                if (to == from)
+                    continue;
+                if (sizes[to] == 0) {
+                    for (int start = runStart; start < size; start++)
+                        moves[count++] = Moves.move(from, start, to, size - start,
+                                                    start == fd && fd > 0);
+                    continue;
+                }
+                int target = columns[to][sizes[to] - 1];
+                int start = size - value(target) + bottom;
+                if (start >= runStart && start < size
+                    && suit(target) == suit(columns[from][start]))
+                    moves[count++] = Moves.move(from, start, to, size - start,
+                                                start == fd && fd > 0);
+            }
+        }
+        if (canDeal())
+            moves[count++] = Moves.DEAL;
+        return count - offset;
+    }
+
+    // Play a legal move without checking it and return it with what unmake
+    // needs to take it back exactly
+    public int make(int move) {
+        if (Moves.isDeal(move))
+            return makeDeal();
+        int from = Moves.from(move), start = Moves.start(move), to = Moves.to(move);
+        int count = sizes[from] - start;
+        int played = Moves.move(from, start, to, count, false);
+
+        byte[] source = columns[from], target = columns[to];
+        for (int i = 0; i < count; i++)
+            hash ^= cardKey(from, start + i, source[start + i])
+                    ^ cardKey(to, sizes[to] + i, source[start + i]);
+        System.arraycopy(source, start, target, sizes[to], count);
+        linkRun(to, sizes[to], count);
+        sizes[to] += count;
+        sizes[from] = start;
+
+        if (flipBottom(from))
+            played |= Moves.FLIP;
+        // A completed stack always ends with the moved run
+        int stack = checkForStack(to);
+        if (stack != NO_STACK)
+            played = Moves.withStack(played, suit(source[start]),
+                                     stack == STACK_FLIPPED);
+        numMoves++;
+        return played;
+    }
+
+    private int makeDeal() {
+        int stacks = 0, flips = 0;
+        hash ^= STOCK_KEYS[stockIndex] ^ STOCK_KEYS[stockIndex + COLUMNS];
+        for (int i = 0; i < COLUMNS; i++) {
+            byte card = stock[stockIndex++];
+            hash ^= cardKey(i, sizes[i], card);
+            columns[i][sizes[i]] = card;
+            link(i, sizes[i]++);
+            int stack = checkForStack(i);
+            if (stack != NO_STACK)
+                stacks |= 1 << i;
+            if (stack == STACK_FLIPPED)
+                flips |= 1 << i;
+        }
+        numDeals--;
+        numMoves++;
+        return Moves.deal(stacks, flips);
+    }
+
+    // Take back a move returned by make, it must be the last one played
+    public void unmake(int played) {
+        numMoves--;
+        if (Moves.isDeal(played)) {
+            unmakeDeal(played);
+            return;
+        }
+        int from = Moves.from(played), start = Moves.start(played), to = Moves.to(played);
+        int count = Moves.count(played);
+
+        if (Moves.removesStack(played))
+            restoreStack(to, Moves.stackSuit(played),
+                         (played & Moves.STACK_FLIP) != 0);
+        if (Moves.flips(played))
+            unflipBottom(from);
+
+        sizes[to] -= count;
+        byte[] source = columns[from], target = columns[to];
+        for (int i = 0; i < count; i++)
+            hash ^= cardKey(from, start + i, target[sizes[to] + i])
+                    ^ cardKey(to, sizes[to] + i, target[sizes[to] + i]);
+        System.arraycopy(target, sizes[to], source, start, count);
+        linkRun(from, start, count);
+        sizes[from] = start + count;
+    }
+
+    private void unmakeDeal(int played) {
+        int stacks = Moves.dealStacks(played), flips = Moves.dealFlips(played);
+        for (int i = COLUMNS - 1; i >= 0; i--) {
+            byte card = stock[--stockIndex];
+            // The dealt card was the ace of the stack it completed
+            if ((stacks & (1 << i)) != 0)
+                restoreStack(i, suit(card), (flips & (1 << i)) != 0);
+            sizes[i]--;
+            hash ^= cardKey(i, sizes[i], card);
+        }
+        hash ^= STOCK_KEYS[stockIndex] ^ STOCK_KEYS[stockIndex + COLUMNS];
+        numDeals++;
+    }
+
+    private static final int NO_STACK = 0, STACK_REMOVED = 1, STACK_FLIPPED = 2;
+
+    // Remove a completed king to ace run from the end of a column, returns
+    // whether a stack was removed and whether that turned a card over
+    private int checkForStack(int column) {
+        int size = sizes[column];
+        if (size < KING || runBegin[column][size - 1] > size - KING
+            || value(columns[column][size - KING]) != KING)
+            return NO_STACK;
+        for (int i = size - KING; i < size; i++)
+            hash ^= cardKey(column, i, columns[column][i]);
+        sizes[column] = size - KING;
+        numStacks++;
+        return flipBottom(column) ? STACK_FLIPPED : STACK_REMOVED;
+    }
+
+    // Put a removed stack back on the end of a column
+    private void restoreStack(int column, int suit, boolean flipped) {
+        if (flipped)
+            unflipBottom(column);
+        byte[] cards = columns[column];
+        for (int i = 0; i < KING; i++) {
+            cards[sizes[column]] = code(KING - i, suit);
+            hash ^= cardKey(column, sizes[column], cards[sizes[column]]);
+            link(column, sizes[column]++);
+        }
+        numStacks--;
+    }
+
+    // Turn the last card of a column face up once it is uncovered
+    private boolean flipBottom(int column) {
+        if (sizes[column] > 0 && faceDown[column] == sizes[column]) {
+            hash ^= FACE_DOWN_KEYS[column][faceDown[column]]
+                    ^ FACE_DOWN_KEYS[column][faceDown[column] - 1];
+            faceDown[column]--;
+            runBegin[column][faceDown[column]] = (byte) faceDown[column];
+            return true;
+        }
+        return false;
+    }
+
+    private void unflipBottom(int column) {
+        hash ^= FACE_DOWN_KEYS[column][faceDown[column]]
+                ^ FACE_DOWN_KEYS[column][faceDown[column] + 1];
+        faceDown[column]++;
+    }
+
+    // Check if every card has been cleared from the board
+    public boolean isWon() {
+        return numStacks == STACKS;
+    }
+
+    // Getters
+    public int size(int column) {
+        return sizes[column];
+    }
+
+    public int faceDown(int column) {
+        return faceDown[column];
+    }
+
+    public int card(int column, int index) {
+        return columns[column][index];
+    }
+
+    public boolean isFaceUp(int column, int index) {
+        return index >= faceDown[column];
+    }
+
+    public boolean isStockEmpty() {
+        return stockIndex == DECK_SIZE;
+    }
+
+    // Get the deck in deal order, shared and not to be changed
+    byte[] getDeck() {
+        return stock;
+    }
+
+    public int getStockIndex() {
+        return stockIndex;
+    }
+
+    public int getNumStacks() {
+        return numStacks;
+    }
+
+    public int getNumDeals() {
+        return numDeals;
+    }
+
+    public int getNumMoves() {
+        return numMoves;
+    }
+
+    // Get the Zobrist hash of the position, the move count is not part of it
+    public long hash() {
+        return hash;
+    }
+}
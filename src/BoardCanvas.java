@@ -0,0 +1,207 @@
+/*
+The BoardCanvas class paints the whole tableau in a single component.
+It replaces the card panels, layered panes and scroll panes of the pile
+view: cards are drawn from the shared sprite cache, a change repaints only
+the columns it touched, and clicks are resolved by column and offset
+arithmetic instead of one mouse listener per card.
+*/
+
+import java.awt.*;
+import java.awt.event.MouseEvent;
+import java.io.IOException;
+import javax.swing.*;
+
+public class BoardCanvas extends JComponent {
+    private static final int TOP = 10, HIGHLIGHT = 10;
+    private static final Color BGCOLOR = new Color(0, 0, 240);
+
+    private final Game game;
+    private final Image[] fronts = new Image[64];
+    private Image back;
+    // The card size the sprites were looked up for, and the spacing of
+    // cards in a column and of a selected run that goes with it
+    private int cardWidth, cardHeight, maxOffset, selectedOffset;
+
+    // Constructor for a canvas showing the board of a game
+    public BoardCanvas(Game game) {
+        this.game = game;
+        setOpaque(true);
+        setBackground(BGCOLOR);
+        loadSprites();
+        CanvasMouseListener listener = new CanvasMouseListener();
+        addMouseListener(listener);
+        addMouseMotionListener(listener);
+    }
+
+    // Look up every sprite once at the card size of the game, indexed by
+    // card code
+    private void loadSprites() {
+        cardWidth = game.getCardWidth();
+        cardHeight = game.getCardHeight();
+        maxOffset = cardHeight / 5;
+        selectedOffset = cardHeight * 3 / 25;
+        try {
+            for (Card.Suit suit : Card.Suit.values())
+                for (int value = 1; value <= Board.KING; value++)
+                    fronts[Board.code(value, suit.ordinal())] =
+                        CardImages.front(value, suit, cardWidth, cardHeight);
+            back = CardImages.back(cardWidth, cardHeight);
+        }
+        catch (IOException e) {
+            JOptionPane.showMessageDialog(null,
+                "Card Images Exception: " + e.getMessage());
+        }
+    }
+
+    private class CanvasMouseListener extends DragLayer.Gesture {
+        CanvasMouseListener() {
+            super(game);
+        }
+
+        @Override
+        public void mouseClicked(MouseEvent e) {
+            int column = BoardCanvas.this.columnAt(e.getX());
+            if (column < 0)
+                return;
+            int index = cardAt(column, e.getY());
+            if (index >= 0)
+                game.cardClicked(column, index, e.getWhen());
+            else if (game.getBoard().size(column) == 0
+                     && e.getY() >= TOP && e.getY() < TOP + cardHeight)
+                game.pileClicked(column, e.getWhen());
+        }
+
+        int columnAt(Point p) {
+            return BoardCanvas.this.columnAt(p.x);
+        }
+
+        int indexAt(int column, Point p) {
+            return cardAt(column, p.y);
+        }
+
+        Point cardOrigin(int column, int index) {
+            return new Point(columnLeft(column), cardTop(column, index));
+        }
+    }
+
+    // Find the column under x, or -1 between columns
+    int columnAt(int x) {
+        int pitch = getWidth() / Board.COLUMNS;
+        if (pitch <= 0 || x < 0)
+            return -1;
+        int column = x / pitch;
+        int left = columnLeft(column);
+        if (column >= Board.COLUMNS || x < left || x >= left + cardWidth)
+            return -1;
+        return column;
+    }
+
+    // Find the card of a column under y, the last card covers its full height
+    int cardAt(int column, int y) {
+        int size = game.getBoard().size(column);
+        if (size == 0 || y < TOP)
+            return -1;
+        int offset = offset(size);
+        int index = Math.min((y - TOP) / offset, size - 1);
+        if (y >= TOP + index * offset + cardHeight)
+            return -1;
+        return index;
+    }
+
+    private int columnLeft(int column) {
+        int pitch = getWidth() / Board.COLUMNS;
+        return column * pitch + Math.max(0, (pitch - cardWidth) / 2);
+    }
+
+    // Show the cards at the current card size of the game
+    public void resizeCards() {
+        loadSprites();
+        repaint();
+    }
+
+    // Get the area a column may take up, for dropping runs on it
+    Rectangle columnBounds(int column) {
+        return new Rectangle(columnLeft(column), 0, cardWidth, getHeight());
+    }
+
+    // Get the distance between the cards of a column
+    int cardOffset(int column) {
+        return offset(game.getBoard().size(column));
+    }
+
+    private int cardTop(int column, int index) {
+        return TOP + index * cardOffset(column);
+    }
+
+    // Tall columns are squeezed so they always fit the canvas
+    private int offset(int size) {
+        if (size <= 1)
+            return maxOffset;
+        int room = getHeight() - TOP - cardHeight - selectedOffset;
+        return Math.max(4, Math.min(maxOffset, room / (size - 1)));
+    }
+
+    // Repaint only the area of one column
+    public void repaintColumn(int column) {
+        repaint(columnLeft(column) - HIGHLIGHT, 0,
+                cardWidth + 2 * HIGHLIGHT, getHeight());
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Rectangle clip = g.getClipBounds();
+        if (clip == null)
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        g.setColor(getBackground());
+        g.fillRect(clip.x, clip.y, clip.width, clip.height);
+
+        GameEvents.Paint event = new GameEvents.Paint();
+        event.begin();
+        int cards = 0;
+        for (int i = 0; i < Board.COLUMNS; i++) {
+            int left = columnLeft(i);
+            if (left + cardWidth + HIGHLIGHT >= clip.x
+                && left - HIGHLIGHT < clip.x + clip.width)
+                cards += paintColumn(g, i, left);
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.renderer = "canvas";
+            event.cards = cards;
+            event.commit();
+        }
+    }
+
+    // Paint the cards of a column and its highlight, returns the number of
+    // cards painted
+    private int paintColumn(Graphics g, int column, int left) {
+        Board board = game.getBoard();
+        int size = board.size(column), offset = offset(size);
+        int painted = 0;
+        for (int i = 0; i < size; i++) {
+            // A run being dragged is drawn by the drag layer instead
+            if (game.isDragged(column, i))
+                break;
+            int y = TOP + i * offset;
+            if (game.isSelected(column, i))
+                y += selectedOffset;
+            Image image = board.isFaceUp(column, i) ? fronts[board.card(column, i)]
+                                                    : back;
+            g.drawImage(image, left, y, null);
+            painted++;
+        }
+
+        if (game.isHighlighted(column)) {
+            int height = Math.max(0, size - 1) * offset + cardHeight;
+            Graphics2D g2 = (Graphics2D) g.create();
+            g2.setColor(game.getHighlight(column) == Game.BUILD_TARGET ? Color.GREEN
+                                                                       : Color.YELLOW);
+            g2.setStroke(new BasicStroke(HIGHLIGHT));
+            g2.drawRoundRect(left - HIGHLIGHT / 2, TOP - HIGHLIGHT / 2,
+                             cardWidth + HIGHLIGHT, height + HIGHLIGHT,
+                             HIGHLIGHT, HIGHLIGHT);
+            g2.dispose();
+        }
+        return painted;
+    }
+}
@@ -1,41 +1,51 @@
 /*
 The Card class represents a playing card in the Solitaire game.
 It handles card interactions and rendering.
+A card view has no identity of its own: it shows whichever card code of
+the board its pile binds it to, so a small pool of views is reused for
+every card of every deal.
 */
 
 import java.awt.*;
 import javax.swing.*;
 import java.awt.event.*;
-import java.util.Vector;
 import java.io.IOException;
-import javax.imageio.ImageIO;
 
 public class Card extends JPanel {
     protected enum Suit {Spades, Diamonds, Clubs, Hearts}
 
-    private int value;
-    private Suit suit;
-    private Card child;
+    private static final Suit[] SUITS = Suit.values();
+
+    // The card code shown, 0 until the view is first bound, and the size
+    // its images were looked up for
+    private int code, index, imageWidth;
     private Game game;
     private Pile pile = null;
-    private boolean faceUp, selected;
+    private boolean faceUp, selected, dragged;
     private Image frontImage, backImage;
 
-    // Constructor for Card class
-    public Card(int val, Suit suit, Game game) {
-        value = val;
-        this.suit = suit;
+    // Constructor for Card class, the card shows whatever face it is bound to
+    public Card(Game game) {
         this.game = game;
-        child = null;
         faceUp = selected = false;
         setUpCard();
     }
 
     private void setUpCard() {
-        tryImage();
-        addMouseListener(new CardMouseListener());
+        CardMouseListener listener = new CardMouseListener();
+        addMouseListener(listener);
+        addMouseMotionListener(listener);
         setOpaque(false);
-        setPreferredSize(new Dimension(120, 150));
+    }
+
+    // Bind the card to a card code from the board. The card does not
+    // repaint itself, its pile repaints once after binding all its cards.
+    public void setFace(int c, boolean up) {
+        if (c != code || imageWidth != game.getCardWidth()) {
+            code = c;
+            tryImage();
+        }
+        faceUp = up;
     }
 
     private void tryImage() {
@@ -49,140 +59,78 @@ public class Card extends JPanel {
         }
     }
 
+    // Images are shared through the cache, not decoded per card
     private void setUpImages() throws IOException {
-        frontImage = ImageIO.read(getClass()
-                              .getResource(getImagePath()))
-                              .getScaledInstance(120, 150, Image.SCALE_SMOOTH);
-        backImage = ImageIO.read(getClass()
-                              .getResource("assets/uno.png"))
-                              .getScaledInstance(120, 150, Image.SCALE_SMOOTH);
+        int width = game.getCardWidth(), height = game.getCardHeight();
+        frontImage = CardImages.front(getValue(), getSuit(), width, height);
+        backImage = CardImages.back(width, height);
+        imageWidth = width;
     }
 
-    private class CardMouseListener extends MouseAdapter{
+    private class CardMouseListener extends DragLayer.Gesture {
+        CardMouseListener() {
+            super(game);
+        }
+
         public void mouseClicked(MouseEvent e) {
-            // Checks if the card is face up
-            if (faceUp) {
-                Card card = Card.this;
-                Vector<Card> cards = new Vector<Card>();
-                // Checks if card is already selected
-                if (game.getCardSelected()) {
-                    // Card is selected and clicked again, deselect all
-                    if (card == game.getCard().get(0))
-                        deselectAll(card, false);
-                    
-                    // Card(s) already and another card is selected that can
-                    // be latched on to
-                    else if ((card.getValue() - 1)==game.getCard().get(0).getValue()
-                          && card.getSuit()==game.getCard().get(0).getSuit()) {
-                        if (!card.hasChild()) {
-                            Card addCard = game.getCard().get(0);
-                            Pile cardPile = addCard.getPile();
-                            addCard.grabStack();
-                            pile.addCard(addCard);
-
-                            while (addCard != null) { 
-                                addCard.deselect(); 
-                                addCard = addCard.getChild(); 
-                            }
-
-                            game.deselectCard();
-
-                            if (!cardPile.isEmpty() 
-                                && !cardPile.getBottomCard().getFaceUp()) 
-                                cardPile.getBottomCard().flipOver();
-                        }
-                        game.updateNumMoves();
-                    }
-                    // Card(s) already selected & another is chosen that cannot
-                    // be latched on to, deselect the other card(s)
-                    else {
-                        for (int i = 0; i < game.getCard().size(); i++)
-                            game.getCard().get(i).deselect();
-                        game.deselectCard();
-                    }
-                    game.unhighlightPiles();
-                }
-                else {
-                    // Deselect all cards if already selected
-                    if (card.getSelected())
-                        deselectAll(card, true);
-                    // No card is alrady selected, select all its cards
-                    else if (card.isStackGood()) { 
-                        while (card != null) { 
-                            card.select();
-                            cards.add(card);
-                            card = card.getChild();
-                        }
-                        game.setSelectedCards(cards);
-                        game.highlightPiles();
-                    }
-                }
-                pile.recalculateSize();
-                game.isWinner();
-            }
+            // The game keeps the selection, the card only reports the click
+            game.cardClicked(pile.getColumn(), index, e.getWhen());
+        }
+
+        int columnAt(Point p) {
+            return pile.getColumn();
+        }
+
+        int indexAt(int column, Point p) {
+            return index;
         }
-    }
 
-    private void deselectAll(Card card, boolean unhighlight) {
-        while (card != null) { 
-            card.deselect();
-            card = card.getChild();
+        Point cardOrigin(int column, int index) {
+            return new Point(0, 0);
         }
-        game.deselectCard();
-        if(unhighlight)
-            game.unhighlightPiles();
     }
 
     // Check if the card and its children form a legal stack
     public boolean isStackGood() {
-        Card c = this, kid = this.getChild();
-        while (kid != null) {
-            if (c.getValue() != (kid.getValue() + 1)
-                || c.getSuit() != kid.getSuit()) 
-                return false;
-            c = kid;
-            kid = kid.getChild();
-        }
-        return true;
+        return pile.isRun(index);
     }
 
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
+        // A card being dragged is drawn by the drag layer instead, it stays
+        // in place so it keeps receiving the drag events
+        if (dragged)
+            return;
+        GameEvents.Paint event = new GameEvents.Paint();
+        event.begin();
         int y = 0;
         if (selected) 
-            y = 18;
+            y = getHeight() * 3 / 25;
 
         if(faceUp) 
             g.drawImage(frontImage, 0, y, this);
         else
             g.drawImage(backImage, 0, y, this);
+        event.end();
+        if (event.shouldCommit()) {
+            event.renderer = "cards";
+            event.cards = 1;
+            event.commit();
+        }
     }
 
     // Setters
-    public void flipOver() { 
-        faceUp = !faceUp; 
-    }
-
-    public void setChild(Card c) { 
-        child = c; 
-    }
-
-    void setPile(Pile newPile) { 
+    void setPile(Pile newPile, int i) { 
         pile = newPile; 
+        index = i;
     }
 
-    public void grabStack() { 
-        getPile().removeStack(this); 
+    void setSelected(boolean s) {
+        selected = s;
     }
 
-    public void select() { 
-        selected = true; 
-        repaint(); 
-    }
-
-    protected void deselect() { 
-        selected = false; 
-        repaint(); 
+    void setDragged(boolean d) {
+        dragged = d;
     }
 
     // Getters
@@ -191,19 +139,20 @@ public class Card extends JPanel {
     }
 
     public int getValue() { 
-        return value; 
+        return Board.value(code); 
     }
 
     public Suit getSuit() { 
-        return suit; 
+        return SUITS[Board.suit(code)]; 
     }
 
+    // The card below this one comes from the pile, cards hold no links
     public Card getChild() { 
-        return child; 
+        return hasChild() ? pile.getCard(index + 1) : null; 
     }
 
     public boolean hasChild() { 
-        return child != null; 
+        return index < game.getBoard().size(pile.getColumn()) - 1; 
     }
 
     public boolean getSelected() { 
@@ -213,9 +162,8 @@ public class Card extends JPanel {
     Pile getPile() { 
         return pile; 
     }
-    
-    // Get the image file path for the card
-    private String getImagePath() {
-        return "assets/" + getValue() + " " + getSuit().name() + ".png";
+
+    int getIndex() { 
+        return index; 
     }
 }
@@ -0,0 +1,226 @@
+/*
+The CardImages class is a process-wide cache of the card sprites.
+Each asset is decoded once and reduced to a chain of mip levels, each half
+the size of the one before. A sprite of any size is built once from the
+nearest larger level, so following the window to a new size never decodes
+again. On scaled displays every sprite also holds a variant at the device
+resolution, so cards stay sharp at 200%. The sprites of a size can be
+built on a background thread so that neither startup nor a resize waits.
+Only the sprites of the size in use and of the size being built are kept.
+Sizes passed through while the window is dragged are dropped, and a build
+stops as soon as a newer size is wanted.
+*/
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BaseMultiResolutionImage;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.imageio.ImageIO;
+
+public final class CardImages {
+    // Index used for the card back, after the 52 card faces
+    private static final int BACK = 52;
+
+    // Card sizes are rounded down to a multiple of this, so resizing the
+    // window only builds new sprites every few pixels
+    private static final int BUCKET = 8;
+    public static final int MIN_WIDTH = 48, MAX_WIDTH = 320;
+
+    private static final BufferedImage[][] mips = new BufferedImage[BACK + 1][];
+    private static final ConcurrentHashMap<Long, Image> scaled =
+        new ConcurrentHashMap<>();
+    // The size the cards are shown at and the size last asked for, packed
+    // by size(), NONE until there is one
+    private static final long NONE = -1;
+    private static volatile long current = NONE, wanted = NONE;
+
+    // One worker builds the sprites of a size while the game goes on
+    private static final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "Card images");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private CardImages() {}
+
+    // Round a card width down to its size bucket, within the supported range
+    public static int bucket(int width) {
+        width = Math.max(MIN_WIDTH, Math.min(MAX_WIDTH, width));
+        return width - width % BUCKET;
+    }
+
+    // Get the card height that goes with a width
+    public static int height(int width) {
+        return width * 5 / 4;
+    }
+
+    // Decode and scale every card at the given size on a background thread,
+    // requests from other threads share whatever it has finished
+    public static void warmUp(int width, int height) {
+        prepare(width, height, null);
+    }
+
+    // Build every card at the given size on the background thread, then run
+    // done there, if it is not null. A build that a newer one replaced
+    // stops early and does not run done.
+    public static void prepare(int width, int height, Runnable done) {
+        long size = size(width, height);
+        wanted = size;
+        evict();
+        worker.execute(() -> {
+            try {
+                for (int i = 0; i <= BACK; i++) {
+                    if (wanted != size)
+                        return;
+                    get(i, width, height);
+                }
+            }
+            catch (IOException e) {
+                // The card that needs the image reports the error
+            }
+            if (done != null)
+                done.run();
+        });
+    }
+
+    // Note that cards are now shown at the given size, the sprites of any
+    // other size except the one being built are dropped
+    public static void use(int width, int height) {
+        current = size(width, height);
+        evict();
+    }
+
+    private static long size(int width, int height) {
+        return ((long) width << 24) | height;
+    }
+
+    // Check if the sprites of a size are worth keeping
+    private static boolean kept(long size) {
+        return size == current || size == wanted || (current == NONE && wanted == NONE);
+    }
+
+    private static void evict() {
+        scaled.keySet().removeIf(key -> !kept(key >>> 16));
+    }
+
+    // Get the face image of a card at the given size
+    public static Image front(int value, Card.Suit suit, int width, int height)
+            throws IOException {
+        return get(suit.ordinal() * 13 + value - 1, width, height);
+    }
+
+    // Get the card back image at the given size
+    public static Image back(int width, int height) throws IOException {
+        return get(BACK, width, height);
+    }
+
+    private static Image get(int index, int width, int height)
+            throws IOException {
+        long size = size(width, height);
+        Long key = (size << 16) | index;
+        Image image = scaled.get(key);
+        if (image == null) {
+            image = build(index, width, height);
+            if (!kept(size))
+                return image;
+            Image raced = scaled.putIfAbsent(key, image);
+            if (raced != null)
+                image = raced;
+        }
+        return image;
+    }
+
+    // Build a sprite at its size, with a device resolution variant when the
+    // display is scaled
+    private static Image build(int index, int width, int height)
+            throws IOException {
+        BufferedImage[] levels = mipLevels(index);
+        BufferedImage base = scale(levels, width, height);
+        double factor = displayScale();
+        if (factor <= 1)
+            return base;
+        int w = (int) Math.round(width * factor), h = (int) Math.round(height * factor);
+        return new BaseMultiResolutionImage(base, scale(levels, w, h));
+    }
+
+    // Decode an asset once and keep its mip levels for every other size
+    private static BufferedImage[] mipLevels(int index) throws IOException {
+        synchronized (mips) {
+            if (mips[index] == null) {
+                BufferedImage image = ImageIO.read(
+                    CardImages.class.getResource(getImagePath(index)));
+                if (image == null)
+                    throw new IOException("Unreadable image "
+                                          + getImagePath(index));
+                int count = 1;
+                for (int w = image.getWidth(); w / 2 >= MIN_WIDTH; w /= 2)
+                    count++;
+                BufferedImage[] levels = new BufferedImage[count];
+                levels[0] = image;
+                for (int i = 1; i < count; i++)
+                    levels[i] = resize(levels[i - 1], levels[i - 1].getWidth() / 2,
+                                       levels[i - 1].getHeight() / 2);
+                mips[index] = levels;
+            }
+            return mips[index];
+        }
+    }
+
+    // Scale from the smallest mip level that is still at least as large,
+    // one bilinear step from there keeps the quality of SCALE_SMOOTH
+    private static BufferedImage scale(BufferedImage[] levels, int width,
+                                       int height) {
+        BufferedImage source = levels[0];
+        for (BufferedImage level : levels)
+            if (level.getWidth() >= width && level.getHeight() >= height)
+                source = level;
+        return resize(source, width, height);
+    }
+
+    private static BufferedImage resize(BufferedImage source, int width,
+                                        int height) {
+        BufferedImage image = createImage(width, height);
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+                           RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.setRenderingHint(RenderingHints.KEY_RENDERING,
+                           RenderingHints.VALUE_RENDER_QUALITY);
+        g.drawImage(source, 0, 0, width, height, null);
+        g.dispose();
+        return image;
+    }
+
+    // Get the scale of the default screen, 2 on a 200% display
+    static double displayScale() {
+        if (GraphicsEnvironment.isHeadless())
+            return 1;
+        AffineTransform transform = GraphicsEnvironment.getLocalGraphicsEnvironment()
+                                                       .getDefaultScreenDevice()
+                                                       .getDefaultConfiguration()
+                                                       .getDefaultTransform();
+        return Math.max(transform.getScaleX(), transform.getScaleY());
+    }
+
+    // Create an image in the screen's pixel format when there is one
+    private static BufferedImage createImage(int width, int height) {
+        if (GraphicsEnvironment.isHeadless())
+            return new BufferedImage(width, height,
+                                     BufferedImage.TYPE_INT_ARGB_PRE);
+        return GraphicsEnvironment.getLocalGraphicsEnvironment()
+                                  .getDefaultScreenDevice()
+                                  .getDefaultConfiguration()
+                                  .createCompatibleImage(width, height,
+                                                         Transparency.TRANSLUCENT);
+    }
+
+    private static String getImagePath(int index) {
+        if (index == BACK)
+            return "assets/uno.png";
+        return "assets/" + (index % 13 + 1) + " "
+               + Card.Suit.values()[index / 13].name() + ".png";
+    }
+}
@@ -0,0 +1,151 @@
+/*
+The DeadEndDetector class tells when a game has no useful moves left.
+It keeps, for every column, the columns its movable run can be built onto.
+After a move only the pairs of columns that involve a changed column are
+looked at again, a few dozen card comparisons, so it runs after every
+move.
+Once the deals are used up and no move builds a run or turns a card, the
+position is a dead end candidate. Runs can still be shuffled through empty
+columns, so a short bounded search over every such shuffle decides it: the
+position is dead only if no sequence of moves ever turns a card over or
+completes a stack.
+Builds are same-suit only under these rules, so there are no off-suit
+builds to track.
+*/
+
+public class DeadEndDetector {
+    public enum Verdict {DEAD, ALIVE, UNKNOWN}
+
+    public static final long DEFAULT_NODES = 50_000;
+
+    private static final int ALL_COLUMNS = (1 << Board.COLUMNS) - 1;
+
+    private Board board;
+    // The columns each column's movable run, or part of it, can be built
+    // onto
+    private final int[] builds = new int[Board.COLUMNS];
+
+    // Bring the tracked moves up to date after the given columns changed,
+    // a board that was not tracked before is looked at whole
+    public void update(Board current, int changedColumns) {
+        if (current != board) {
+            board = current;
+            changedColumns = ALL_COLUMNS;
+        }
+        for (int from = 0; from < Board.COLUMNS; from++) {
+            // A changed column may now move onto any column, the others only
+            // onto the columns that changed
+            int targets = (changedColumns & (1 << from)) != 0 ? ALL_COLUMNS
+                                                               : changedColumns;
+            for (int to = 0; to < Board.COLUMNS; to++) {
+                if ((targets & (1 << to)) == 0)
+                    continue;
+                if (buildsOnto(from, to))
+                    builds[from] |= 1 << to;
+                else
+                    builds[from] &= ~(1 << to);
+            }
+        }
+    }
+
+    // Check if part of the movable run of a column continues the last card
+    // of another, non-empty column
+    private boolean buildsOnto(int from, int to) {
+        int size = board.size(from), target = board.size(to);
+        if (from == to || size == 0 || target == 0)
+            return false;
+        int card = board.card(to, target - 1);
+        int start = size - Board.value(card) + Board.value(board.card(from, size - 1));
+        return start >= board.runStart(from) && start < size
+               && Board.suit(card) == Board.suit(board.card(from, start));
+    }
+
+    // Check if some move makes progress: a deal, a move that turns a card
+    // over, a whole run built onto the card it follows, which leaves
+    // behind a card it did not follow or an empty column, or a build that
+    // completes a stack
+    public boolean hasUsefulMove() {
+        if (board.isWon() || board.getNumDeals() > 0)
+            return true;
+        boolean emptyColumn = false;
+        for (int i = 0; i < Board.COLUMNS; i++)
+            emptyColumn |= board.size(i) == 0;
+        for (int from = 0; from < Board.COLUMNS; from++) {
+            int start = board.runStart(from);
+            if (emptyColumn && start > 0 && start == board.faceDown(from))
+                return true;
+            for (int to = 0; to < Board.COLUMNS; to++)
+                if ((builds[from] & (1 << to)) != 0
+                    && (board.canMove(from, start, to) || completesStack(from, to)))
+                    return true;
+        }
+        return false;
+    }
+
+    // A build completes a stack when it moves an ace onto a run that
+    // begins with a king
+    private boolean completesStack(int from, int to) {
+        return Board.value(board.card(from, board.size(from) - 1)) == 1
+               && Board.value(board.card(to, board.runStart(to))) == Board.KING;
+    }
+
+    // Check if any move at all can be played
+    public boolean hasLegalMove() {
+        if (board.canDeal())
+            return true;
+        for (int from = 0; from < Board.COLUMNS; from++) {
+            if (builds[from] != 0)
+                return true;
+            if (board.size(from) == 0)
+                continue;
+            for (int to = 0; to < Board.COLUMNS; to++)
+                if (board.size(to) == 0)
+                    return true;
+        }
+        return false;
+    }
+
+    // Search every position reachable without dealing, up to a node budget,
+    // for a move that turns a card over or completes a stack. The board is
+    // not changed.
+    public static Verdict prove(Board start, long maxNodes) {
+        if (start.isWon() || start.canDeal())
+            return Verdict.ALIVE;
+        Board board = new Board(start);
+        TranspositionTable seen = new TranspositionTable((int) Math.min(maxNodes * 2, 1 << 20));
+        seen.add(board.hash());
+        int[][] moves = new int[64][];
+        int[] next = new int[64], end = new int[64], played = new int[64];
+        moves[0] = new int[Board.MAX_MOVES];
+        end[0] = board.legalMoves(moves[0], 0);
+        long nodes = 0;
+        int depth = 0;
+        while (depth >= 0) {
+            if (next[depth] == end[depth]) {
+                if (--depth >= 0)
+                    board.unmake(played[depth]);
+                continue;
+            }
+            int move = moves[depth][next[depth]++];
+            if (Moves.isDeal(move))
+                continue;
+            int token = board.make(move);
+            if (Moves.flips(token) || Moves.removesStack(token))
+                return Verdict.ALIVE;
+            if (++nodes >= maxNodes)
+                return Verdict.UNKNOWN;
+            if (!seen.add(board.hash())) {
+                board.unmake(token);
+                continue;
+            }
+            if (depth + 1 == moves.length)
+                return Verdict.UNKNOWN;
+            played[depth++] = token;
+            if (moves[depth] == null)
+                moves[depth] = new int[Board.MAX_MOVES];
+            next[depth] = 0;
+            end[depth] = board.legalMoves(moves[depth], 0);
+        }
+        return Verdict.DEAD;
+    }
+}
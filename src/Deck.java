@@ -1,59 +1,68 @@
 /*
 The Deck class represents a deck of cards in the Solitaire game.
-It manages the cards in the deck, including shuffling and drawing.
+It builds the card codes for the chosen number of suits and shuffles them.
+Every deal is numbered by the seed of its shuffle, so the same deal number
+and suit count always produce the same cards.
 */
 
-import java.util.Vector;
-import java.util.Random;
+import java.util.SplittableRandom;
 
 public class Deck {
-    private Vector<Card> cards;
-    private static int currentCard;
-    private Game game;
-
-    // Constructor for creating a deck with a specified number of suits
-    public Deck(int suits, Game games) {
-        game = games;
-        currentCard = 0;
-        cards = new Vector<>();
+    // Deal numbers picked at random stay short enough to read out
+    private static final long MAX_RANDOM_SEED = 1_000_000_000L;
+    private static final SplittableRandom seeds = new SplittableRandom();
+
+    private byte[] cards;
+    private long seed;
+    private SplittableRandom random;
+
+    // Constructor for creating a random deal with a specified number of suits
+    public Deck(int suits) {
+        this(suits, randomSeed());
+    }
+
+    // Constructor for creating a numbered deal
+    public Deck(int suits, long seed) {
+        this.seed = seed;
+        cards = new byte[Board.DECK_SIZE];
+        random = new SplittableRandom(seed);
         initializeDeck(suits);
+        shuffleDeck();
+    }
 
-        // Shuffling the deck 10 times
-        for (int i = 0; i < 10; i++)
-            shuffleDeck();
+    // Pick a new deal number
+    public static long randomSeed() {
+        synchronized (seeds) {
+            return seeds.nextLong(MAX_RANDOM_SEED);
+        }
     }
 
-    // Check if the deck is empty
-    public boolean isEmpty() {
-        return currentCard == cards.size();
+    // Get the deal number
+    public long getSeed() {
+        return seed;
     }
 
-    // Draw a card from the deck (removes and returns the current card)
-    public Card drawCard() {
-        return currentCard == cards.size()?null:cards.elementAt(currentCard++);
+    // Get the card codes in deal order
+    public byte[] getCards() {
+        return cards.clone();
     }
 
     // Initialize the deck with cards based on the number of suits
     private void initializeDeck(int numSuits) {
+        int n = 0;
         for (int i = 0; i < numSuits; i++)
-            for (int j = 0; j < 104 / numSuits; j++)
-                cards.add(new Card((j % 13) + 1, Card.Suit.values()[i], game));
+            for (int j = 0; j < Board.DECK_SIZE / numSuits; j++)
+                cards[n++] = Board.code((j % 13) + 1, i);
     }
 
-    // Shuffle all cards randomly
+    // Shuffle all cards with a single Fisher-Yates pass, every order is
+    // equally likely
     public void shuffleDeck() {
-        // Creating a Random object
-        Random random = new Random();
-
-        // Running through all the cards and switching their places with other
-        // cards randomly
-        for (int i = 0; i < cards.size(); i++) {
-            // Generating the random location of the card to switch with
-            int loc = random.nextInt(cards.size());
-            // Switching the cards
-            Card card = cards.elementAt(i);
-            cards.set(i, cards.elementAt(loc));
-            cards.set(loc, card);
+        for (int i = cards.length - 1; i > 0; i--) {
+            int loc = random.nextInt(i + 1);
+            byte card = cards[i];
+            cards[i] = cards[loc];
+            cards[loc] = card;
         }
     }
 }
@@ -0,0 +1,176 @@
+/*
+The DragLayer class shows a run of cards being dragged.
+It sits on the glass pane of the game frame and draws the run as a single
+image composed once when the drag begins. Moving the pointer repaints the
+area the image left and the area it moved to. The layer is not opaque, so
+Swing paints the board below it in those areas first, but the cards of
+the run are not drawn again one by one and the rest of the window is left
+alone. Where the run is dropped is found from column bounds taken at the
+start of the drag.
+*/
+
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import javax.swing.*;
+
+public class DragLayer extends JComponent {
+    private BufferedImage sprite;
+    private final Point grab = new Point();
+    private final Rectangle bounds = new Rectangle();
+    private Rectangle[] columns;
+
+    // Constructor for an empty layer, hidden until a drag begins
+    public DragLayer() {
+        setOpaque(false);
+        setVisible(false);
+    }
+
+    // Compose the cards of a run from start to the end of a column into one
+    // translucent image, each card offset below the one before. The image
+    // has the resolution of the display, so it is sharp on scaled screens.
+    static BufferedImage compose(Board board, int column, int start, int offset,
+                                 int width, int height) throws IOException {
+        int count = board.size(column) - start;
+        double scale = CardImages.displayScale();
+        int w = (int) Math.round(width * scale);
+        int h = (int) Math.round(((count - 1) * offset + height) * scale);
+        BufferedImage image;
+        if (GraphicsEnvironment.isHeadless())
+            image = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB_PRE);
+        else
+            image = GraphicsEnvironment.getLocalGraphicsEnvironment()
+                                       .getDefaultScreenDevice()
+                                       .getDefaultConfiguration()
+                                       .createCompatibleImage(w, h,
+                                                              Transparency.TRANSLUCENT);
+        Graphics2D g = image.createGraphics();
+        g.scale(scale, scale);
+        for (int i = 0; i < count; i++) {
+            int code = board.card(column, start + i);
+            Card.Suit suit = Card.Suit.values()[Board.suit(code)];
+            g.drawImage(CardImages.front(Board.value(code), suit, width, height),
+                        0, i * offset, null);
+        }
+        g.dispose();
+        return image;
+    }
+
+    // Begin dragging an image held at the grab point, over columns whose
+    // bounds are given in the coordinates of this layer
+    void begin(BufferedImage image, Point grabPoint, Rectangle[] columnBounds,
+               Point pointer) {
+        sprite = image;
+        grab.setLocation(grabPoint);
+        columns = columnBounds;
+        double scale = CardImages.displayScale();
+        bounds.setBounds(pointer.x - grab.x, pointer.y - grab.y,
+                         (int) Math.round(image.getWidth() / scale),
+                         (int) Math.round(image.getHeight() / scale));
+        setVisible(true);
+        repaint(bounds);
+    }
+
+    // Follow the pointer, repainting only where the image was and now is
+    void moveTo(Point pointer) {
+        if (sprite == null)
+            return;
+        Rectangle dirty = new Rectangle(bounds);
+        bounds.setLocation(pointer.x - grab.x, pointer.y - grab.y);
+        dirty.add(bounds);
+        repaint(dirty);
+    }
+
+    // Finish the drag and return the column the image was dropped on, or -1
+    int end() {
+        if (sprite == null)
+            return -1;
+        int column = columnAt((int) bounds.getCenterX());
+        repaint(bounds);
+        sprite = null;
+        columns = null;
+        setVisible(false);
+        return column;
+    }
+
+    // Snap to the column nearest the middle of the image, unless it is
+    // more than a column width away
+    private int columnAt(int x) {
+        int column = -1, best = Integer.MAX_VALUE;
+        for (int i = 0; i < columns.length; i++) {
+            int distance = Math.abs(x - (int) columns[i].getCenterX());
+            if (distance < best && distance <= columns[i].width) {
+                column = i;
+                best = distance;
+            }
+        }
+        return column;
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        if (sprite != null)
+            g.drawImage(sprite, bounds.x, bounds.y, bounds.width, bounds.height,
+                        null);
+    }
+
+    // Mouse handling shared by the card views and the canvas: a press on a
+    // card followed by a few pixels of motion drags its run
+    abstract static class Gesture extends MouseAdapter {
+        private static final int THRESHOLD = 4;
+        private final Game game;
+        private Point press;
+        private int column, index;
+        private boolean dragging;
+
+        Gesture(Game game) {
+            this.game = game;
+        }
+
+        // Find the column under a point of the source, or -1
+        abstract int columnAt(Point p);
+
+        // Find the card of a column under a point of the source, or -1
+        abstract int indexAt(int column, Point p);
+
+        // Get the top left corner of a card in the coordinates of the source
+        abstract Point cardOrigin(int column, int index);
+
+        @Override
+        public void mousePressed(MouseEvent e) {
+            press = null;
+            if (!SwingUtilities.isLeftMouseButton(e))
+                return;
+            column = columnAt(e.getPoint());
+            index = column < 0 ? -1 : indexAt(column, e.getPoint());
+            if (index >= 0)
+                press = e.getPoint();
+        }
+
+        @Override
+        public void mouseDragged(MouseEvent e) {
+            if (press == null)
+                return;
+            if (dragging)
+                game.dragTo(e.getComponent(), e.getPoint());
+            else if (press.distance(e.getPoint()) > THRESHOLD) {
+                Point origin = cardOrigin(column, index);
+                Point grab = new Point(press.x - origin.x, press.y - origin.y);
+                dragging = game.beginDrag(column, index, e.getComponent(),
+                                          grab, e.getPoint());
+                if (!dragging)
+                    press = null;
+            }
+        }
+
+        @Override
+        public void mouseReleased(MouseEvent e) {
+            if (dragging)
+                game.endDrag(e.getComponent(), e.getPoint(), e.getWhen());
+            dragging = false;
+            press = null;
+        }
+    }
+}
@@ -11,21 +11,67 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.util.Vector;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.KeyEvent;
+import java.awt.image.BufferedImage;
 import java.net.URI;
+import java.util.ArrayDeque;
+import java.io.IOException;
 
 class Game {
     private Deck gameDeck;
+    private Board board;
+    private MoveJournal journal = new MoveJournal();
+    private SaveFile save;
+    private HintEngine hints = new HintEngine(this::hintReady);
+    private final DeadEndDetector deadEnds = new DeadEndDetector();
+    // A dead end is shown in the stats bar once per run of positions without
+    // a useful move, and the last position reported is never reported again
+    private boolean deadEndShown, undoing;
+    private long reportedDeadEnd;
+    private boolean hintWanted = false;
+    private boolean headless = false;
     private Pile gamePiles[];
+    private JScrollPane pileScrollPanes[];
+    private BoardCanvas canvas;
+    private DragLayer dragLayer;
     private static JFrame gameFrame;
     private JMenu gameStats;
-    private static JButton playButton, rulesButton, exitButton;
-    private boolean cardSelected = false;
-    private Vector<Card> cards = null;
+    private static JButton playButton, resumeButton, rulesButton, exitButton;
+    private int selectedColumn = -1, selectedStart;
+    private int dragColumn = -1, dragStart;
+    // The size cards are shown at, and the size being prepared for the
+    // window after a resize
+    private int cardWidth = 120, cardHeight = 150, wantedCardWidth = 120;
+    // Card views no pile is showing, kept to be bound to other cards
+    private final ArrayDeque<Card> cardPool = new ArrayDeque<>();
+    // How each column is marked: not at all, with the yellow border of an
+    // empty column or hint, or with the green border of a card the picked
+    // up run continues
+    static final int NOT_MARKED = 0, MARKED = 1, BUILD_TARGET = 2;
+    private final int[] highlighted = new int[Board.COLUMNS];
+    // The code of the last card of every column, or EMPTY, kept as the
+    // columns change so that finding where a run can go is ten lookups
+    private static final int EMPTY = -1;
+    private final int[] exposed = new int[Board.COLUMNS];
+    // Changes waiting to be shown: a bit per column, the stats bar and the
+    // hint search. One user action may change a column many times, the
+    // views catch up once, just before the frame is painted.
+    private int changedColumns;
+    private boolean statsChanged, positionChanged, flushPending;
     private static int numSuits;
-    private int numStacks = 0, numDeals = 5, numMoves = 0;
+    private static long dealSeed;
     private static final Color BGCOLOR = new Color(0, 0, 240);
     private static final ImageIcon icon = new ImageIcon("assets/icon.png");
+    // The single canvas renderer is picked with -Dspider.renderer=canvas
+    // or from the Game menu
+    private static boolean canvasRenderer =
+        "canvas".equals(System.getProperty("spider.renderer"));
+    // The timing overlay is shown with -Dspider.metrics=true or from the
+    // Game menu, it is null while hidden
+    private static boolean showMetrics = Boolean.getBoolean("spider.metrics");
+    private static MetricsOverlay metrics;
 
     // Main method to launch the game
     public static void main(String[] args) {
@@ -41,54 +87,64 @@ class Game {
         addActionListeners();
         addButtons();
         gameFrame.setVisible(true);
+        SwingUtilities.invokeLater(StartupTimer::firstFrame);
+        // Decode the cards while the player picks a deal
+        Dimension screen = Toolkit.getDefaultToolkit().getScreenSize();
+        int width = cardWidthFor(screen.width, screen.height);
+        CardImages.warmUp(width, CardImages.height(width));
     }
 
     // Constructor for the Game class
-    public Game(int suits) {
-        numSuits = suits;
-        setUpGameFrame();
-
-        GridBagConstraints gbc = new GridBagConstraints();
-        gbc.anchor = GridBagConstraints.NORTH;
-        gbc.weightx = .8;
-        gbc.weighty = 1;
-
-        // Initialize the game deck and piles
-        gameDeck = new Deck(numSuits, this);
-        gamePiles = new Pile[10];
-
-        // Get the screen size
-        Dimension screenSize = Toolkit.getDefaultToolkit().getScreenSize();
-        int screenHeight = screenSize.height;
+    public Game(int suits, long seed) {
+        this(suits, seed, null);
+    }
 
+    // Constructor for a game without a window, used by tools and benchmarks
+    // to lay out, paint and play the piles offscreen
+    Game(Board board) {
+        this.board = board;
+        headless = true;
+        gamePiles = new Pile[Board.COLUMNS];
         for (int i = 0; i < gamePiles.length; i++) {
+            gamePiles[i] = new Pile(this, i);
+            updateExposed(i);
+        }
+    }
 
-            int numOfCards = 5;
-            if (i < 4)
-                numOfCards = 6;
-
-            gamePiles[i] = new Pile(gameDeck, numOfCards, this);
-
-            JScrollPane pileScrollPane = new JScrollPane(gamePiles[i]);
-            pileScrollPane.setPreferredSize(new Dimension(120, screenHeight - 100)); // Set a preferred size for the scroll pane
-            pileScrollPane.setVerticalScrollBarPolicy(JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED);
-            pileScrollPane.setHorizontalScrollBarPolicy(JScrollPane.HORIZONTAL_SCROLLBAR_NEVER);
-
-            // Set the background color for the JScrollPane and its viewport
-            pileScrollPane.getViewport().setBackground(BGCOLOR);
-            pileScrollPane.setBackground(BGCOLOR);
-
-            // Remove the border of the JScrollPane
-            pileScrollPane.setBorder(BorderFactory.createEmptyBorder());
+    // Constructor for a game resumed from a save, or a new one if it is null
+    private Game(int suits, long seed, SaveFile resume) {
+        numSuits = suits;
+        dealSeed = seed;
+        setUpGameFrame();
+        dragLayer = new DragLayer();
+        gameFrame.setGlassPane(dragLayer);
 
-            // Add the JScrollPane to the game frame instead of the Pile directly
-            gameFrame.add(pileScrollPane, gbc);
-        }
+        // Initialize the game deck and board
+        gameDeck = new Deck(numSuits, dealSeed);
+        board = new Board(gameDeck.getCards());
+        setUpSave(resume);
+        Dimension screen = Toolkit.getDefaultToolkit().getScreenSize();
+        cardWidth = wantedCardWidth = cardWidthFor(screen.width, screen.height);
+        cardHeight = CardImages.height(cardWidth);
+        CardImages.use(cardWidth, cardHeight);
+        showTable();
+        gameFrame.getContentPane().addComponentListener(new ComponentAdapter() {
+            public void componentResized(ComponentEvent e) {
+                resizeCards();
+            }
+        });
 
         JMenuBar menuBar = new JMenuBar();
         JMenu gameMenu = new JMenu("Game");
         gameMenu.add(createDealMenu());
+        gameMenu.add(createUndoMenu());
+        gameMenu.add(createRedoMenu());
         gameMenu.add(createRestartMenu());
+        gameMenu.add(createHintMenu());
+        gameMenu.add(createSolveMenu());
+        gameMenu.addSeparator();
+        gameMenu.add(createRendererMenu());
+        gameMenu.add(createMetricsMenu());
         menuBar.add(gameMenu);
 
         JMenu helpMenu = new JMenu("Help");
@@ -103,24 +159,41 @@ class Game {
         exitMenu.add(exitMenuItem);
         menuBar.add(exitMenu);
 
-        gameStats = new JMenu("Moves: " + numMoves + "  |  Stacks: " 
-                             + numStacks + "/8  |  Deals: " + numDeals + "/5");
+        gameStats = new JMenu();
+        updateGameStats();
         gameStats.setOpaque(true);
         gameStats.setBackground(Color.WHITE);
         menuBar.add(Box.createHorizontalGlue());
         menuBar.add(gameStats);
 
         gameFrame.setJMenuBar(menuBar);
+        if (showMetrics && metrics == null)
+            metrics = new MetricsOverlay(gameFrame);
         gameFrame.setVisible(true);
+        hints.update(board);
+        SwingUtilities.invokeLater(StartupTimer::firstDeal);
     }
 
     private static class playButtonListener implements ActionListener {
         public void actionPerformed(ActionEvent e) {
-            gameFrame.dispose();
             showSuitSelection();
         }
     }
 
+    private static class resumeButtonListener implements ActionListener {
+        public void actionPerformed(ActionEvent e) {
+            try {
+                SaveFile file = SaveFile.open(SaveFile.defaultPath());
+                StartupTimer.dealChosen();
+                new Game(file.getSuits(), file.getSeed(), file);
+            }
+            catch (IOException ex) {
+                JOptionPane.showMessageDialog(null,
+                    "Unable to resume the saved game: " + ex.getMessage());
+            }
+        }
+    }
+
     private static class rulesButtonListener implements ActionListener {
         public void actionPerformed(ActionEvent e) {
             displayRules(gameFrame);
@@ -134,6 +207,11 @@ class Game {
     }
 
     private static void setUpGameFrame() {
+        // The window of the start menu is kept for the game
+        if (gameFrame != null) {
+            gameFrame.getContentPane().removeAll();
+            return;
+        }
         gameFrame = new JFrame("Spider Solitaire");
         gameFrame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         gameFrame.setExtendedState(JFrame.MAXIMIZED_BOTH);
@@ -142,32 +220,100 @@ class Game {
         gameFrame.setLayout(new GridBagLayout());
     }
 
+    // Fill the window with the piles, or with the canvas in canvas mode
+    private void showTable() {
+        for (int i = 0; i < Board.COLUMNS; i++)
+            updateExposed(i);
+        Container content = gameFrame.getContentPane();
+        content.removeAll();
+        if (canvasRenderer) {
+            if (canvas == null)
+                canvas = new BoardCanvas(this);
+            GridBagConstraints gbc = new GridBagConstraints();
+            gbc.fill = GridBagConstraints.BOTH;
+            gbc.weightx = 1;
+            gbc.weighty = 1;
+            content.add(canvas, gbc);
+        }
+        else {
+            if (gamePiles == null)
+                createPiles();
+            GridBagConstraints gbc = new GridBagConstraints();
+            gbc.anchor = GridBagConstraints.NORTH;
+            gbc.weightx = .8;
+            gbc.weighty = 1;
+            for (int i = 0; i < gamePiles.length; i++) {
+                // The piles were not kept current while the canvas was shown
+                gamePiles[i].update();
+                content.add(pileScrollPanes[i], gbc);
+            }
+        }
+        content.revalidate();
+        content.repaint();
+    }
+
+    // Create the view of every column, each in its own scroll pane
+    private void createPiles() {
+        gamePiles = new Pile[Board.COLUMNS];
+        pileScrollPanes = new JScrollPane[Board.COLUMNS];
+
+        // Get the screen size
+        Dimension screenSize = Toolkit.getDefaultToolkit().getScreenSize();
+        int screenHeight = screenSize.height;
+
+        for (int i = 0; i < gamePiles.length; i++) {
+
+            gamePiles[i] = new Pile(this, i);
+
+            JScrollPane pileScrollPane = new JScrollPane(gamePiles[i]);
+            pileScrollPane.setPreferredSize(new Dimension(cardWidth, screenHeight - 100)); // Set a preferred size for the scroll pane
+            pileScrollPane.setVerticalScrollBarPolicy(JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED);
+            pileScrollPane.setHorizontalScrollBarPolicy(JScrollPane.HORIZONTAL_SCROLLBAR_NEVER);
+
+            // Set the background color for the JScrollPane and its viewport
+            pileScrollPane.getViewport().setBackground(BGCOLOR);
+            pileScrollPane.setBackground(BGCOLOR);
+
+            // Remove the border of the JScrollPane
+            pileScrollPane.setBorder(BorderFactory.createEmptyBorder());
+
+            pileScrollPanes[i] = pileScrollPane;
+        }
+    }
+
     private static void initializeButtons() {
         playButton = new JButton("Play");
+        resumeButton = new JButton("Resume");
         rulesButton = new JButton("Rules");
         exitButton = new JButton("Exit");
     }
 
     private static void setButtonColors() {
         playButton.setBackground(Color.GREEN);
+        resumeButton.setBackground(Color.CYAN);
         rulesButton.setBackground(Color.RED);
         exitButton.setBackground(Color.YELLOW);
     }
 
     private static void modifyButtonFonts() {
         playButton.setFont(new Font("Arial", Font.PLAIN, 30));
+        resumeButton.setFont(new Font("Arial", Font.PLAIN, 30));
         rulesButton.setFont(new Font("Arial", Font.PLAIN, 30));
         exitButton.setFont(new Font("Arial", Font.PLAIN, 30));
     }
 
     private static void addActionListeners() {
         playButton.addActionListener(new playButtonListener());
+        resumeButton.addActionListener(new resumeButtonListener());
         rulesButton.addActionListener(new rulesButtonListener());
         exitButton.addActionListener(new exitButtonListener());
     }
 
     private static void addButtons() {
         gameFrame.add(playButton, gbc());
+        // Only offer to resume when a game was left unfinished
+        if (SaveFile.exists(SaveFile.defaultPath()))
+            gameFrame.add(resumeButton, gbc());
         gameFrame.add(rulesButton, gbc());
         gameFrame.add(exitButton, gbc());
     }
@@ -193,12 +339,144 @@ class Game {
         }
     }
 
+    // Create the "Hint" menu item, bound to H
+    private JMenuItem createHintMenu() {
+        JMenuItem hintMenu = new JMenuItem("Hint");
+        hintMenu.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_H, 0));
+        hintMenu.addActionListener(e -> {
+            hintWanted = true;
+            if (hints.isReady())
+                hintReady(hints.getHint());
+        });
+        return hintMenu;
+    }
+
+    // Show a hint found by the engine, if the player asked for one
+    private void hintReady(int move) {
+        if (!hintWanted)
+            return;
+        hintWanted = false;
+        clearSelection();
+        if (move == HintEngine.NONE)
+            JOptionPane.showMessageDialog(null, "No useful moves found.");
+        else if (Moves.isDeal(move))
+            JOptionPane.showMessageDialog(null, "Deal new cards.");
+        else {
+            highlightPile(Moves.from(move));
+            highlightPile(Moves.to(move));
+        }
+    }
+
+    // Create the "Undo" menu item, bound to Ctrl+Z
+    private JMenuItem createUndoMenu() {
+        JMenuItem undoMenu = new JMenuItem("Undo");
+        undoMenu.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Z,
+            Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx()));
+        undoMenu.addActionListener(e -> undoMove());
+        return undoMenu;
+    }
+
+    // Create the "Redo" menu item, bound to Ctrl+Y
+    private JMenuItem createRedoMenu() {
+        JMenuItem redoMenu = new JMenuItem("Redo");
+        redoMenu.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Y,
+            Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx()));
+        redoMenu.addActionListener(e -> redoMove());
+        return redoMenu;
+    }
+
+    // Create the "Single Canvas Renderer" option, switched in place
+    private JMenuItem createRendererMenu() {
+        JCheckBoxMenuItem rendererMenu = new JCheckBoxMenuItem(
+            "Single Canvas Renderer", canvasRenderer);
+        rendererMenu.addActionListener(e -> {
+            canvasRenderer = rendererMenu.isSelected();
+            showTable();
+        });
+        return rendererMenu;
+    }
+
+    // Create the "Show Metrics" checkbox, which shows the timing overlay
+    private JMenuItem createMetricsMenu() {
+        JCheckBoxMenuItem metricsMenu = new JCheckBoxMenuItem("Show Metrics",
+                                                              showMetrics);
+        metricsMenu.addActionListener(e -> {
+            showMetrics = metricsMenu.isSelected();
+            if (showMetrics && metrics == null)
+                metrics = new MetricsOverlay(gameFrame);
+            else if (!showMetrics && metrics != null) {
+                metrics.dispose();
+                metrics = null;
+            }
+        });
+        return metricsMenu;
+    }
+
+    // Create the "Can It Be Won?" menu item
+    private JMenuItem createSolveMenu() {
+        JMenuItem solveMenu = new JMenuItem("Can It Be Won?");
+        solveMenu.addActionListener(new SolveButtonListener());
+        return solveMenu;
+    }
+
+    // Runs the solver on a copy of the board away from the event thread
+    private class SolveButtonListener implements ActionListener {
+        public void actionPerformed(ActionEvent e) {
+            Board position = new Board(board);
+            new SwingWorker<Solver.Result, Void>() {
+                protected Solver.Result doInBackground() {
+                    return new Solver().solve(position);
+                }
+
+                protected void done() {
+                    try {
+                        showSolverResult(get());
+                    }
+                    catch (Exception ex) {
+                        JOptionPane.showMessageDialog(null,
+                            "Solver failed: " + ex.getMessage());
+                    }
+                }
+            }.execute();
+        }
+    }
+
+    private void showSolverResult(Solver.Result result) {
+        String message;
+        switch (result.getStatus()) {
+            case WINNABLE:
+                // The search stops at the first win it finds, so its line
+                // shows the game can be won but is rarely the best play
+                int[] line = result.getMoves();
+                message = "This game can be won.";
+                if (line.length > 0)
+                    message += "\nOne winning line takes " + line.length
+                               + " moves and starts with "
+                               + Moves.toString(line[0])
+                               + ".\nIt is a way to win, not the best move.";
+                break;
+            case UNWINNABLE:
+                message = "This game can no longer be won.";
+                break;
+            default:
+                message = "Could not decide within the search budget.";
+                break;
+        }
+        JOptionPane.showMessageDialog(null, message + "\nPositions searched: "
+                                      + result.getNodes() + " in "
+                                      + result.getMillis() + " ms");
+    }
+
     // Create the "Restart" menu with difficulty options
     private JMenu createRestartMenu() {
         JMenu restartMenu = new JMenu("Restart");
         restartMenu.add(createNewGame("1 Suit"));
         restartMenu.add(createNewGame("2 Suit"));
         restartMenu.add(createNewGame("4 Suit"));
+        restartMenu.addSeparator();
+        JMenuItem sameDealItem = new JMenuItem("Same Deal");
+        sameDealItem.addActionListener(e -> restart(numSuits, dealSeed));
+        restartMenu.add(sameDealItem);
         return restartMenu;
     }
 
@@ -218,94 +496,543 @@ class Game {
     }
 
     private void newGameHelper() {
-        gameFrame.dispose();
-        new Game(numSuits);
+        restart(numSuits, Deck.randomSeed());
+    }
+
+    // Deal a new game in place, keeping the window, its menus and the card
+    // views, which are bound to the new cards
+    void restart(int suits, long seed) {
+        closeSave();
+        clearSelection();
+        numSuits = suits;
+        dealSeed = seed;
+        gameDeck = new Deck(numSuits, dealSeed);
+        board = new Board(gameDeck.getCards());
+        journal.clear();
+        hintWanted = false;
+        if (!headless)
+            setUpSave(null);
+        for (int i = 0; i < Board.COLUMNS; i++)
+            refreshColumn(i);
+        positionChanged();
     }
 
     // Update game stats text
     private void updateGameStats(){
-        gameStats.setText("Moves: " + numMoves + "  |  Stacks: " 
-                          + numStacks + "/8  |  Deals: " + numDeals + "/5");
+        String text = "Deal #" + dealSeed + "  |  Moves: " + board.getNumMoves() + "  |  Stacks: " 
+                      + board.getNumStacks() + "/8  |  Deals: " 
+                      + board.getNumDeals() + "/5";
+        if (deadEndShown)
+            text += "  |  No useful moves left, undo or start a new game";
+        // Setting the same text again would still lay out the menu bar
+        if (!text.equals(gameStats.getText()))
+            gameStats.setText(text);
     }
 
-    public void updateNumMoves(){
-        numMoves++;
-        updateGameStats();
+    // Deal new cards to the game piles
+    private void dealNewCards() {
+        GameEvents.Deal event = new GameEvents.Deal();
+        event.begin();
+        if(board.getNumDeals() != 0) {
+            // Deal new cards if there are no empty spaces
+            if (board.canDeal()) {
+                clearSelection();
+                playMove(Moves.DEAL);
+                event.dealt = true;
+            } 
+            else {
+                highlightPiles();
+                JOptionPane.showMessageDialog(null,"Please Fill All Empty Spaces.");
+            }
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.dealsLeft = board.getNumDeals();
+            event.commit();
+        }
     }
 
-    public void updateNumStacks(){
-        numStacks++;
-        updateGameStats();
+    // Handle a click on the card at index of a column, made at when
+    public void cardClicked(int column, int index, long when) {
+        GameEvents.Input event = new GameEvents.Input();
+        event.begin();
+        selectCard(column, index);
+        inputHandled(event, "card", column, index, when);
     }
 
-    public void updateNumDeals(){
-        numDeals--;
-        updateGameStats();
+    private void selectCard(int column, int index) {
+        // Face down cards cannot be picked
+        if (!board.isFaceUp(column, index))
+            return;
+        if (selectedColumn >= 0) {
+            // Card is selected and clicked again, deselect all
+            if (column == selectedColumn && index == selectedStart)
+                clearSelection();
+
+            // Card(s) already selected and the bottom card of another
+            // pile is chosen, the board decides if the stack can
+            // be latched on to
+            else if (index == board.size(column) - 1)
+                moveSelectedTo(column);
+
+            // Card(s) already selected & another is chosen that cannot
+            // be latched on to, deselect the other card(s)
+            else
+                clearSelection();
+        }
+        // No card is already selected, select all its cards
+        else if (board.isRun(column, index)) {
+            selectedColumn = column;
+            selectedStart = index;
+            refreshColumn(column);
+            highlightTargets(column, index);
+        }
+        isWinner();
     }
 
-    // Deal new cards to the game piles
-    private void dealNewCards() {
-        if(numDeals != 0) {
-            boolean allSpacesFilled = true;
-
-            // Check if all spaces are filled with cards
-            for(int i = 0; i < 10; i++) {
-                if (gamePiles[i].isEmpty()) {
-                    allSpacesFilled = false;
-                    highlightPiles();
-                    i = 10;
-                } 
+    // Handle a click on an empty column, made at when
+    public void pileClicked(int column, long when) {
+        GameEvents.Input event = new GameEvents.Input();
+        event.begin();
+        if (board.size(column) == 0 && selectedColumn >= 0)
+            moveSelectedTo(column); // Adding card to an empty space
+        inputHandled(event, "pile", column, 0, when);
+    }
+
+    // Record how long the game took to handle a click or a drop made at
+    // when, and time its repaint from then when the overlay is shown
+    private void inputHandled(GameEvents.Input event, String source, int column,
+                              int index, long when) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.queued = Math.max(0, System.currentTimeMillis() - when);
+            event.source = source;
+            event.column = column;
+            event.index = index;
+            event.commit();
+        }
+        if (metrics != null)
+            metrics.clicked(when);
+    }
+
+    // Move the selected card(s) onto a column if the board allows it
+    private void moveSelectedTo(int column) {
+        int move = Moves.move(selectedColumn, selectedStart, column);
+        clearSelection();
+        if (board.isLegal(move))
+            playMove(move);
+    }
+
+    // Start dragging the run from index of a column, grabbed at a point of
+    // the source component, returns false if the cards cannot be moved
+    boolean beginDrag(int column, int index, Component source, Point grab,
+                      Point pointer) {
+        if (dragLayer == null || !board.isRun(column, index))
+            return false;
+        BufferedImage sprite;
+        try {
+            sprite = DragLayer.compose(board, column, index, cardOffset(column),
+                                       cardWidth, cardHeight);
+        }
+        catch (IOException e) {
+            JOptionPane.showMessageDialog(null,
+                "Card Images Exception: " + e.getMessage());
+            return false;
+        }
+        clearSelection();
+        dragColumn = column;
+        dragStart = index;
+        refreshColumn(column);
+        highlightTargets(column, index);
+        dragLayer.begin(sprite, grab, columnBounds(),
+                        SwingUtilities.convertPoint(source, pointer, dragLayer));
+        return true;
+    }
+
+    // Move the dragged run with the pointer
+    void dragTo(Component source, Point pointer) {
+        dragLayer.moveTo(SwingUtilities.convertPoint(source, pointer, dragLayer));
+    }
+
+    // Drop the dragged run on the column it was snapped to, if the board
+    // allows it, otherwise it goes back where it was. The pointer was
+    // released at when.
+    void endDrag(Component source, Point pointer, long when) {
+        GameEvents.Input event = new GameEvents.Input();
+        event.begin();
+        dragTo(source, pointer);
+        int to = dragLayer.end();
+        int move = Moves.move(dragColumn, dragStart, Math.max(to, 0));
+        int from = dragColumn;
+        dragColumn = -1;
+        refreshColumn(from);
+        unhighlightPiles();
+        if (to >= 0 && board.isLegal(move)) {
+            playMove(move);
+            isWinner();
+        }
+        inputHandled(event, "drop", to, dragStart, when);
+    }
+
+    // Get the bounds of every column in the coordinates of the drag layer,
+    // taken once per drag
+    private Rectangle[] columnBounds() {
+        Rectangle[] bounds = new Rectangle[Board.COLUMNS];
+        for (int i = 0; i < Board.COLUMNS; i++) {
+            if (canvasRenderer)
+                bounds[i] = SwingUtilities.convertRectangle(canvas,
+                                canvas.columnBounds(i), dragLayer);
+            else
+                bounds[i] = SwingUtilities.convertRectangle(
+                                pileScrollPanes[i].getParent(),
+                                pileScrollPanes[i].getBounds(), dragLayer);
+        }
+        return bounds;
+    }
+
+    // Get the card width for a table of the given size, ten columns take
+    // up about five eighths of the width
+    static int cardWidthFor(int width, int height) {
+        return CardImages.bucket(Math.min(width / 16, height / 5));
+    }
+
+    // Follow the window with the card size. The sprites of a new size are
+    // built in the background and the table switches once they are ready.
+    private void resizeCards() {
+        Container content = gameFrame.getContentPane();
+        int width = cardWidthFor(content.getWidth(), content.getHeight());
+        if (width == wantedCardWidth)
+            return;
+        wantedCardWidth = width;
+        int height = CardImages.height(width);
+        CardImages.prepare(width, height, () -> SwingUtilities.invokeLater(() -> {
+            if (wantedCardWidth == width)
+                setCardSize(width, height);
+        }));
+    }
+
+    private void setCardSize(int width, int height) {
+        cardWidth = width;
+        cardHeight = height;
+        CardImages.use(width, height);
+        if (gamePiles != null) {
+            for (int i = 0; i < gamePiles.length; i++) {
+                Dimension size = pileScrollPanes[i].getPreferredSize();
+                pileScrollPanes[i].setPreferredSize(new Dimension(width, size.height));
+                gamePiles[i].update();
             }
+        }
+        if (canvas != null)
+            canvas.resizeCards();
+        gameFrame.getContentPane().revalidate();
+    }
 
-            // Deal new cards if there are no empty spaces
-            if (allSpacesFilled) {
-                for(int i = 0; i < 10; i++) {
-                    Card card = gameDeck.drawCard();
-                    if(card != null) {
-                        card.flipOver();
-                        gamePiles[i].addCard(card);
-                    }
-                    else
-                        i = 10;
-                }
-                updateNumDeals();
-                updateNumMoves();
-            } 
+    // Get the size cards are shown at
+    int getCardWidth() {
+        return cardWidth;
+    }
+
+    int getCardHeight() {
+        return cardHeight;
+    }
+
+    // Get the distance between the cards of a column as it is shown
+    private int cardOffset(int column) {
+        return canvasRenderer ? canvas.cardOffset(column)
+                              : gamePiles[column].getOffset();
+    }
+
+    // Play a legal move and record it in the journal
+    void playMove(int move) {
+        GameEvents.BoardMove event = new GameEvents.BoardMove();
+        event.begin();
+        int played = board.make(move);
+        boardMoved(event, "play", played);
+        journal.record(played);
+        saveGame(journal.size() - 1);
+        updatePiles(move);
+    }
+
+    // Take back the last move
+    private void undoMove() {
+        clearSelection();
+        GameEvents.BoardMove event = new GameEvents.BoardMove();
+        event.begin();
+        int played = journal.undo(board);
+        if (played != -1) {
+            undoing = true;
+            boardMoved(event, "undo", played);
+            saveGame(-1);
+            updatePiles(played);
+        }
+    }
+
+    // Play the last undone move again
+    private void redoMove() {
+        clearSelection();
+        GameEvents.BoardMove event = new GameEvents.BoardMove();
+        event.begin();
+        int played = journal.redo(board);
+        if (played != -1) {
+            boardMoved(event, "redo", played);
+            saveGame(journal.size() - 1);
+            updatePiles(played);
+            isWinner();
+        }
+    }
+
+    // Record a move the board made or took back, with what it did
+    private static void boardMoved(GameEvents.BoardMove event, String operation,
+                                   int played) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.operation = operation;
+            event.move = Moves.format(played);
+            if (Moves.isDeal(played)) {
+                event.cards = Board.COLUMNS;
+                event.stackRemoved = Moves.dealStacks(played) != 0;
+                event.flipped = Moves.dealFlips(played) != 0;
+            }
+            else {
+                event.cards = Moves.count(played);
+                event.stackRemoved = Moves.removesStack(played);
+                event.flipped = Moves.flips(played)
+                                || (played & Moves.STACK_FLIP) != 0;
+            }
+            event.commit();
+        }
+    }
+
+    // Resume from a save, or start a new one for this deal
+    private void setUpSave(SaveFile resume) {
+        try {
+            if (resume != null) {
+                save = resume;
+                resume.restore(board, journal);
+            }
             else
-            JOptionPane.showMessageDialog(null,"Please Fill All Empty Spaces.");
+                save = SaveFile.create(SaveFile.defaultPath(), dealSeed, numSuits);
+        }
+        catch (IOException e) {
+            JOptionPane.showMessageDialog(null,
+                "Unable to use the saved game: " + e.getMessage());
+            closeSave();
+            // Start the deal over rather than keep a half replayed board
+            board = new Board(gameDeck.getCards());
+            journal.clear();
         }
     }
 
-    // Check if there are selected cards
-    public boolean getCardSelected() {
-        return cardSelected;
+    // Log the move at index, if any, and the current stats to the save
+    private void saveGame(int index) {
+        if (save == null)
+            return;
+        try {
+            save.write(board, journal, index);
+        }
+        catch (IOException e) {
+            JOptionPane.showMessageDialog(null,
+                "Unable to save the game: " + e.getMessage());
+            closeSave();
+        }
     }
 
-    // Select a group of cards
-    public void setSelectedCards(Vector<Card> selectedCards) {
-        cardSelected = true;
-        cards = new Vector<>(selectedCards);
+    private void closeSave() {
+        if (save == null)
+            return;
+        try {
+            save.close();
+        }
+        catch (IOException e) {
+            // Nothing more is written to it
+        }
+        save = null;
     }
 
-    // Get the selected card(s)
-    public Vector<Card> getCard() {
-        return this.cards;
+    // Show the columns a move changed
+    private void updatePiles(int move) {
+        if (Moves.isDeal(move)) {
+            for (int i = 0; i < Board.COLUMNS; i++)
+                refreshColumn(i);
+        }
+        else {
+            refreshColumn(Moves.from(move));
+            refreshColumn(Moves.to(move));
+        }
+        positionChanged();
     }
 
-    // Deselect the selected card(s)
-    public void deselectCard() {
-        cardSelected = false;
-        cards = null;
+    // Note that the stats and the hint must follow a new position
+    private void positionChanged() {
+        if (headless)
+            return;
+        statsChanged = positionChanged = true;
+        scheduleFlush();
+    }
+
+    // Note that the view of a column must be brought up to date. A game
+    // without a window does it at once.
+    private void refreshColumn(int column) {
+        updateExposed(column);
+        if (headless) {
+            gamePiles[column].update();
+            return;
+        }
+        changedColumns |= 1 << column;
+        scheduleFlush();
+    }
+
+    // Show the changes once the current action has been handled, the
+    // repaints they request are then painted together in the next frame
+    private void scheduleFlush() {
+        if (!flushPending) {
+            flushPending = true;
+            SwingUtilities.invokeLater(this::flushChanges);
+        }
+    }
+
+    // Bring every changed column, the stats and the hint up to date. The
+    // canvas only repaints the area of a column, a pile rebinds its cards
+    // and repaints once.
+    private void flushChanges() {
+        flushPending = false;
+        int changed = changedColumns;
+        for (int i = 0; i < Board.COLUMNS; i++) {
+            if ((changed & (1 << i)) == 0)
+                continue;
+            if (canvasRenderer)
+                canvas.repaintColumn(i);
+            else
+                gamePiles[i].update();
+        }
+        changedColumns = 0;
+        if (statsChanged)
+            updateGameStats();
+        if (positionChanged) {
+            hints.update(board);
+            checkForDeadEnd(changed);
+        }
+        statsChanged = positionChanged = undoing = false;
+    }
+
+    // Tell the player when no useful moves are left. The quick check only
+    // looks at the changed columns, the search that confirms a dead end
+    // runs in the background and is dropped if the player moved meanwhile.
+    // Undoing within a dead end, or coming back to the position already
+    // reported, does not report it again.
+    private void checkForDeadEnd(int changed) {
+        deadEnds.update(board, changed);
+        if (deadEnds.hasUsefulMove()) {
+            showDeadEnd(false);
+            return;
+        }
+        if (deadEndShown || undoing || board.hash() == reportedDeadEnd)
+            return;
+        if (!deadEnds.hasLegalMove()) {
+            reportDeadEnd();
+            return;
+        }
+        Board position = new Board(board);
+        int moves = board.getNumMoves();
+        long hash = board.hash();
+        new SwingWorker<DeadEndDetector.Verdict, Void>() {
+            protected DeadEndDetector.Verdict doInBackground() {
+                return DeadEndDetector.prove(position, DeadEndDetector.DEFAULT_NODES);
+            }
+
+            protected void done() {
+                try {
+                    if (get() == DeadEndDetector.Verdict.DEAD && board.hash() == hash
+                        && board.getNumMoves() == moves)
+                        reportDeadEnd();
+                }
+                catch (Exception ex) {
+                    // Without a verdict the player is simply not told
+                }
+            }
+        }.execute();
+    }
+
+    private void reportDeadEnd() {
+        reportedDeadEnd = board.hash();
+        showDeadEnd(true);
+    }
+
+    // Show or hide the dead end notice in the stats bar
+    private void showDeadEnd(boolean shown) {
+        if (deadEndShown == shown)
+            return;
+        deadEndShown = shown;
+        gameStats.setForeground(shown ? Color.RED : UIManager.getColor("Menu.foreground"));
+        updateGameStats();
+    }
+
+    // Deselect the selected card(s), if any
+    private void clearSelection() {
+        if (selectedColumn >= 0) {
+            int column = selectedColumn;
+            selectedColumn = -1;
+            refreshColumn(column);
+        }
+        unhighlightPiles();
+    }
+
+    // Get the model behind the piles
+    public Board getBoard() {
+        return board;
+    }
+
+    // Get the view of one column
+    Pile getPile(int column) {
+        return gamePiles[column];
+    }
+
+    // Get a card view from the pool, or a new one if it is empty
+    Card takeCard() {
+        Card card = cardPool.pollLast();
+        return card != null ? card : new Card(this);
+    }
+
+    // Return a card view that no pile shows any more
+    void recycleCard(Card card) {
+        cardPool.addLast(card);
+    }
+
+    // Check if the card at index of a column is part of the selection
+    public boolean isSelected(int column, int index) {
+        return column == selectedColumn && index >= selectedStart;
+    }
+
+    // Check if the card at index of a column is part of the dragged run
+    public boolean isDragged(int column, int index) {
+        return column == dragColumn && index >= dragStart;
+    }
+
+    // Check if a column is marked with a border
+    public boolean isHighlighted(int column) {
+        return highlighted[column] != NOT_MARKED;
+    }
+
+    // Get how a column is marked, NOT_MARKED, MARKED or BUILD_TARGET
+    int getHighlight(int column) {
+        return highlighted[column];
     }
 
     // Check if the player has won the game
     public void isWinner() {
-        if (gameDeck.isEmpty()) {
-            for (int i = 0; i < 10; i++)
-                if (!gamePiles[i].isEmpty()) 
-                    return;
+        if (board.isWon()) {
+            // A finished game is not offered for resuming
+            try {
+                if (save != null)
+                    save.delete();
+            }
+            catch (IOException e) {
+                JOptionPane.showMessageDialog(null,
+                    "Unable to remove the saved game: " + e.getMessage());
+            }
+            save = null;
             int playAgain = JOptionPane.showConfirmDialog(null,
-                    "You won!\nTotal Moves: " + numMoves + "\nPlay again?",
+                    "You won!\nTotal Moves: " + board.getNumMoves() + "\nPlay again?",
                       "You won!", JOptionPane.YES_NO_OPTION);
             if (playAgain == JOptionPane.YES_OPTION)
                 newGameHelper();
@@ -315,14 +1042,52 @@ class Game {
     }
 
     protected void highlightPiles(){
-        for(int i = 0; i < gamePiles.length; i++)
-            if(gamePiles[i].isEmpty())
-                gamePiles[i].highlightPile();
+        for(int i = 0; i < Board.COLUMNS; i++)
+            if(board.size(i) == 0)
+                highlightPile(i, MARKED);
+    }
+
+    // Mark every column the run from start of a column can be moved to:
+    // the empty ones, and the ones ending with the card the run continues.
+    // Runs only continue a card of their own suit. Marks left by a hint are
+    // cleared first so that only targets are marked.
+    private void highlightTargets(int column, int start) {
+        unhighlightPiles();
+        int card = board.card(column, start);
+        // A king has no card to continue, the code matches no card
+        int wanted = Board.code(Board.value(card) + 1, Board.suit(card));
+        for (int i = 0; i < Board.COLUMNS; i++) {
+            if (i == column)
+                continue;
+            if (exposed[i] == EMPTY)
+                highlightPile(i, MARKED);
+            else if (exposed[i] == wanted)
+                highlightPile(i, BUILD_TARGET);
+        }
     }
 
     protected void unhighlightPiles(){
-        for(int i = 0; i < gamePiles.length; i++)
-            gamePiles[i].unhighlightPile();
+        for(int i = 0; i < Board.COLUMNS; i++) {
+            if (highlighted[i] != NOT_MARKED) {
+                highlighted[i] = NOT_MARKED;
+                refreshColumn(i);
+            }
+        }
+    }
+
+    private void highlightPile(int column) {
+        highlightPile(column, MARKED);
+    }
+
+    private void highlightPile(int column, int mark) {
+        highlighted[column] = mark;
+        refreshColumn(column);
+    }
+
+    // Note the last card of a column after it changed
+    private void updateExposed(int column) {
+        int size = board.size(column);
+        exposed[column] = size == 0 ? EMPTY : board.card(column, size - 1);
     }
 
     // Display game rules using a web browser
@@ -339,8 +1104,15 @@ class Game {
     private static void showSuitSelection() {
         String[] options = {"1 Suit", "2 Suit", "4 Suit"};
 
+        // An empty deal number picks a random deal
+        JTextField dealField = new JTextField(10);
+        JPanel message = new JPanel(new GridLayout(0, 1));
+        message.add(new JLabel("Deal # (leave empty for a random deal):"));
+        message.add(dealField);
+        message.add(new JLabel("Select Number of Suits:"));
+
         int suits = JOptionPane.showOptionDialog(
-            null, "Select Number of Suits:", "Suit Selection",
+            null, message, "Suit Selection",
             JOptionPane.DEFAULT_OPTION, JOptionPane.PLAIN_MESSAGE,
             new ImageIcon("assets/iconn.png"), options, options[0]);
 
@@ -360,6 +1132,25 @@ class Game {
                 break;
         }
 
-        SwingUtilities.invokeLater(() -> new Game(numSuits));
+        dealSeed = parseDealNumber(dealField.getText());
+        StartupTimer.dealChosen();
+        SwingUtilities.invokeLater(() -> new Game(numSuits, dealSeed));
+    }
+
+    // Read a deal number typed by the player, falling back to a random deal
+    private static long parseDealNumber(String text) {
+        text = text.trim();
+        if (text.startsWith("#"))
+            text = text.substring(1).trim();
+        if (text.isEmpty())
+            return Deck.randomSeed();
+        try {
+            return Long.parseLong(text);
+        }
+        catch (NumberFormatException e) {
+            JOptionPane.showMessageDialog(null, "Invalid deal number: " + text
+                                          + "\nStarting a random deal.");
+            return Deck.randomSeed();
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,98 @@
+/*
+The GameEvents class holds the JDK Flight Recorder events of the game.
+They time the handling of clicks and drops, the moves played on the board,
+deals and painting, and show up under Spider Solitaire in a recording:
+  java -XX:StartFlightRecording=filename=spider.jfr Game
+Until a recording enables them, beginning and committing an event is a
+check of a flag the JIT folds away, so they stay compiled in.
+*/
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+final class GameEvents {
+    private static final String CATEGORY = "Spider Solitaire";
+
+    private GameEvents() {}
+
+    // A click on a card or an empty pile, or a drop of a dragged run, and
+    // everything the game did in response
+    @Name("spider.Input")
+    @Label("Input")
+    @Category(CATEGORY)
+    @Description("Handling of a click or a drop")
+    @StackTrace(false)
+    static final class Input extends Event {
+        @Label("Source")
+        String source;
+
+        @Label("Column")
+        int column;
+
+        @Label("Card")
+        int index;
+
+        // From the mouse event to the end of its handling, the wait on the
+        // event thread included
+        @Label("Since Input")
+        @Timespan(Timespan.MILLISECONDS)
+        long queued;
+    }
+
+    // A move made or taken back on the board, which adds the run to its
+    // destination and removes a completed stack
+    @Name("spider.BoardMove")
+    @Label("Board Move")
+    @Category(CATEGORY)
+    @Description("A move played, undone or redone on the board")
+    @StackTrace(false)
+    static final class BoardMove extends Event {
+        @Label("Operation")
+        String operation;
+
+        @Label("Move")
+        String move;
+
+        @Label("Cards")
+        int cards;
+
+        @Label("Stack Removed")
+        boolean stackRemoved;
+
+        @Label("Card Turned")
+        boolean flipped;
+    }
+
+    // A deal from the stock, including the refresh of every column
+    @Name("spider.Deal")
+    @Label("Deal")
+    @Category(CATEGORY)
+    @Description("Dealing a row of cards from the stock")
+    @StackTrace(false)
+    static final class Deal extends Event {
+        @Label("Deals Left")
+        int dealsLeft;
+
+        @Label("Dealt")
+        boolean dealt;
+    }
+
+    // Painting a card view, or the columns of the canvas a repaint touched
+    @Name("spider.Paint")
+    @Label("Paint")
+    @Category(CATEGORY)
+    @Description("Painting cards")
+    @StackTrace(false)
+    static final class Paint extends Event {
+        @Label("Renderer")
+        String renderer;
+
+        @Label("Cards")
+        int cards;
+    }
+}
@@ -0,0 +1,242 @@
+/*
+The GameServer class hosts many games of Spider Solitaire at once for
+players connecting over TCP.
+A game on the server is only its deck and its position packed by
+Board.pack, a few hundred bytes, and the Board rules are applied to a
+position unpacked for each move. Every connection is served by its own
+virtual thread reading and writing a blocking NIO channel, and one
+connection may play any number of games. A game belongs to the connection
+that started it: no other connection can play, show or end it, and it is
+ended when that connection closes, so games of players who went away do
+not pile up.
+
+The protocol is one command per line and one reply line per command:
+  NEW <suits> [deal]   GAME <id> <deal> <suits>
+  MOVE <id> <move>     OK <moves> <stacks> <deals> <won>, or ILLEGAL
+  SHOW <id>            BOARD <position from Board.pack in hex>
+  END <id>             ENDED
+  STATS                STATS <games> <moves> <state bytes> <heap bytes>
+Moves are written as by Moves.format, anything wrong replies ERROR and a
+reason. Lines longer than 256 characters are dropped with ERROR line too
+long.
+
+Usage: java GameServer [port]
+*/
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+public class GameServer {
+    public static final int DEFAULT_PORT = 7474;
+    private static final int MAX_LINE = 256;
+    private static final long REPORT_MILLIS = 10_000;
+
+    private final ConcurrentHashMap<Long, Session> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong();
+    private final LongAdder moves = new LongAdder();
+    private final LongAdder stateBytes = new LongAdder();
+
+    // A game in progress, the deck is shared by nothing else and never
+    // changes, the position is replaced after every move
+    private static final class Session {
+        final long deal;
+        final int suits;
+        final byte[] deck;
+        byte[] position;
+
+        Session(long deal, int suits) {
+            this.deal = deal;
+            this.suits = suits;
+            deck = new Deck(suits, deal).getCards();
+            position = new Board(deck).pack();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        new GameServer().serve(port);
+    }
+
+    // Accept connections until the process ends
+    public void serve(int port) throws IOException {
+        try (ServerSocketChannel server = ServerSocketChannel.open()) {
+            server.bind(new InetSocketAddress(port), 4096);
+            System.err.println("Listening on port " + port);
+            startReports();
+            while (true) {
+                SocketChannel channel = server.accept();
+                Thread.ofVirtual().name("player").start(() -> serve(channel));
+            }
+        }
+    }
+
+    // Answer the commands of one connection. Every complete line read is
+    // answered and the replies are written together. The games the
+    // connection started are ended when it closes, however that happens.
+    private void serve(SocketChannel channel) {
+        ByteBuffer in = ByteBuffer.allocate(4096), out = ByteBuffer.allocate(8192);
+        StringBuilder line = new StringBuilder();
+        boolean tooLong = false;
+        Set<Long> owned = new HashSet<>();
+        try (channel) {
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            while (channel.read(in) >= 0) {
+                in.flip();
+                while (in.hasRemaining()) {
+                    char c = (char) in.get();
+                    if (c == '\n') {
+                        String answer = tooLong ? "ERROR line too long"
+                                                : execute(line.toString().trim(), owned);
+                        byte[] reply = (answer + "\n").getBytes(StandardCharsets.US_ASCII);
+                        if (out.remaining() < reply.length)
+                            write(channel, out);
+                        out.put(reply);
+                        line.setLength(0);
+                        tooLong = false;
+                    }
+                    else if (line.length() < MAX_LINE)
+                        line.append(c);
+                    else
+                        tooLong = true;
+                }
+                in.clear();
+                write(channel, out);
+            }
+        }
+        catch (IOException e) {
+            // The player went away
+        }
+        finally {
+            for (long id : owned)
+                end(id);
+        }
+    }
+
+    private static void write(SocketChannel channel, ByteBuffer out) throws IOException {
+        out.flip();
+        while (out.hasRemaining())
+            channel.write(out);
+        out.clear();
+    }
+
+    // Run one command of a connection owning the given games and return its
+    // reply
+    String execute(String command, Set<Long> owned) {
+        String[] parts = command.split("\\s+");
+        try {
+            switch (parts[0]) {
+                case "NEW":
+                    return newGame(parts, owned);
+                case "MOVE":
+                    return move(session(parts, owned), Moves.parse(parts[2]));
+                case "SHOW":
+                    Session shown = session(parts, owned);
+                    synchronized (shown) {
+                        return "BOARD " + HexFormat.of().formatHex(shown.position);
+                    }
+                case "END":
+                    session(parts, owned);
+                    long id = Long.parseLong(parts[1]);
+                    owned.remove(id);
+                    end(id);
+                    return "ENDED";
+                case "STATS":
+                    Runtime runtime = Runtime.getRuntime();
+                    return "STATS " + sessions.size() + " " + moves.sum() + " "
+                           + stateBytes.sum() + " "
+                           + (runtime.totalMemory() - runtime.freeMemory());
+                default:
+                    return "ERROR unknown command " + parts[0];
+            }
+        }
+        catch (RuntimeException e) {
+            return "ERROR " + e.getMessage();
+        }
+    }
+
+    private String newGame(String[] parts, Set<Long> owned) {
+        int suits = Integer.parseInt(parts[1]);
+        if (suits != 1 && suits != 2 && suits != 4)
+            return "ERROR suits must be 1, 2 or 4";
+        long deal = parts.length > 2 ? Long.parseLong(parts[2]) : Deck.randomSeed();
+        Session session = new Session(deal, suits);
+        long id = nextId.incrementAndGet();
+        sessions.put(id, session);
+        owned.add(id);
+        stateBytes.add(session.deck.length + session.position.length);
+        return "GAME " + id + " " + deal + " " + suits;
+    }
+
+    // Find a game of the connection, the games of others are not there
+    private Session session(String[] parts, Set<Long> owned) {
+        long id = Long.parseLong(parts[1]);
+        Session session = owned.contains(id) ? sessions.get(id) : null;
+        if (session == null)
+            throw new IllegalArgumentException("no game " + parts[1]);
+        return session;
+    }
+
+    // Remove a game and the bytes it held
+    private void end(long id) {
+        Session ended = sessions.remove(id);
+        if (ended != null) {
+            synchronized (ended) {
+                stateBytes.add(-(ended.deck.length + ended.position.length));
+            }
+        }
+    }
+
+    // Play a move of a game if the rules allow it
+    private String move(Session session, int move) {
+        synchronized (session) {
+            Board board = new Board(session.deck, session.position);
+            if (!board.isLegal(move))
+                return "ILLEGAL";
+            board.make(move);
+            byte[] packed = board.pack();
+            stateBytes.add(packed.length - session.position.length);
+            session.position = packed;
+            moves.increment();
+            return "OK " + board.getNumMoves() + " " + board.getNumStacks() + " "
+                   + board.getNumDeals() + " " + board.isWon();
+        }
+    }
+
+    // Print the number of games and the moves played every few seconds
+    private void startReports() {
+        Thread thread = new Thread(() -> {
+            long last = 0;
+            while (true) {
+                try {
+                    Thread.sleep(REPORT_MILLIS);
+                }
+                catch (InterruptedException e) {
+                    return;
+                }
+                long total = moves.sum();
+                Runtime runtime = Runtime.getRuntime();
+                System.err.printf("%d games, %.0f moves/s, state %d bytes"
+                                  + " (%.0f per game), heap %d MB%n",
+                                  sessions.size(),
+                                  (total - last) * 1000.0 / REPORT_MILLIS,
+                                  stateBytes.sum(),
+                                  stateBytes.sum() / Math.max(1.0, sessions.size()),
+                                  (runtime.totalMemory() - runtime.freeMemory()) >> 20);
+                last = total;
+            }
+        }, "Server reports");
+        thread.setDaemon(true);
+        thread.start();
+    }
+}
@@ -0,0 +1,60 @@
+/*
+The GreedyStrategy class plays the move that looks best right now, from
+the face-up cards only. It prefers moves that turn a card over, then moves
+that empty a column, then moves that join a run onto the card it follows.
+Moves that only shuffle a run about are never played, so when nothing
+makes progress it deals. An empty column stops a deal, so then it fills
+the column with the longest run it can, and it resigns when it cannot do
+that either.
+*/
+
+public class GreedyStrategy implements Strategy {
+    private static final int FLIP = 100, EMPTY = 60, BUILD = 20;
+
+    private final int[] moves = new int[Board.MAX_MOVES];
+
+    public int chooseMove(View view) {
+        int count = view.legalMoves(moves, 0);
+        int best = RESIGN, bestScore = 0, fill = RESIGN, fillLength = 0;
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            if (Moves.isDeal(move)) {
+                if (best == RESIGN)
+                    best = move;
+                continue;
+            }
+            int score = score(view, move);
+            if (score > bestScore) {
+                best = move;
+                bestScore = score;
+            }
+            // Moving a whole column into an empty one changes nothing, and
+            // part of a run would only be moved back
+            int from = Moves.from(move), start = Moves.start(move);
+            if (view.size(Moves.to(move)) == 0 && start > 0
+                && start == view.runStart(from)
+                && view.size(from) - start > fillLength) {
+                fill = move;
+                fillLength = view.size(from) - start;
+            }
+        }
+        return best == RESIGN ? fill : best;
+    }
+
+    // Score a move by what it uncovers and what it builds, zero or less
+    // means it makes no progress
+    private static int score(View view, int move) {
+        int from = Moves.from(move), start = Moves.start(move), to = Moves.to(move);
+        int score = 0;
+        if (Moves.flips(move))
+            score += FLIP;
+        else if (start == 0 && view.size(to) > 0)
+            score += EMPTY;
+        // A run that already continues a card gains nothing by moving
+        if (view.size(to) > 0 && start == view.runStart(from))
+            score += BUILD + view.size(from) - start;
+        else if (view.size(to) == 0 && !Moves.flips(move))
+            score -= BUILD;
+        return score;
+    }
+}
@@ -0,0 +1,169 @@
+/*
+The HintEngine class looks for the best next move on a background thread.
+Every change to the board starts a new time-bounded lookahead on a copy of
+the position and cancels the one before it, so the search never runs on
+the Swing event thread and a hint is usually ready before it is asked for.
+The lookahead only uses what the player can see: it does not deal, and it
+stops below a move that turns a face-down card over.
+*/
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+import javax.swing.SwingUtilities;
+
+public class HintEngine {
+    // Returned when there is no move that improves the position
+    public static final int NONE = -1;
+
+    private static final long BUDGET_NANOS = 80_000_000L;
+    private static final int MAX_DEPTH = 8;
+
+    // One worker is shared by every game, searches are short and only the
+    // latest one matters
+    private static final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "Hint engine");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    private final AtomicLong generation = new AtomicLong();
+    private final IntConsumer listener;
+    private int hint = NONE;
+    private boolean ready;
+
+    // Search state, only touched by the worker thread
+    private final int[][] moves = new int[MAX_DEPTH][Board.MAX_MOVES];
+    private final long[] path = new long[MAX_DEPTH + 1];
+    private long deadline, searchGeneration;
+    private boolean aborted;
+    private int nodes;
+
+    // Constructor for an engine that hands every finished hint to listener
+    // on the event thread
+    public HintEngine(IntConsumer listener) {
+        this.listener = listener;
+    }
+
+    // Start searching a new position, dropping any search still running
+    public void update(Board board) {
+        long current = generation.incrementAndGet();
+        Board position = new Board(board);
+        ready = false;
+        worker.execute(() -> {
+            if (generation.get() != current)
+                return;
+            int move = search(position, current);
+            SwingUtilities.invokeLater(() -> {
+                if (generation.get() == current) {
+                    hint = move;
+                    ready = true;
+                    listener.accept(move);
+                }
+            });
+        });
+    }
+
+    // Check if the hint for the current position has been found
+    public boolean isReady() {
+        return ready;
+    }
+
+    // Get the hint for the current position, a packed move, a deal or NONE
+    public int getHint() {
+        return hint;
+    }
+
+    // Iterative deepening until the budget runs out, keeping the best move
+    // of the deepest search that finished
+    private int search(Board board, long current) {
+        searchGeneration = current;
+        deadline = System.nanoTime() + BUDGET_NANOS;
+        aborted = false;
+        nodes = 0;
+        path[0] = board.hash();
+
+        int base = evaluate(board), best = NONE;
+        for (int depth = 1; depth <= MAX_DEPTH && !aborted; depth++) {
+            int move = NONE, score = base;
+            int count = legalMoves(board, 0);
+            for (int i = 0; i < count; i++) {
+                int played = board.make(moves[0][i]);
+                int value = lookahead(board, played, 1, depth);
+                board.unmake(played);
+                if (aborted)
+                    break;
+                if (value > score) {
+                    score = value;
+                    move = moves[0][i];
+                }
+            }
+            if (!aborted)
+                best = move;
+        }
+
+        // Nothing helps, so the stock is the way forward if it can be dealt
+        if (best == NONE && board.canDeal())
+            return Moves.DEAL;
+        return best == NONE ? NONE : Moves.plain(best);
+    }
+
+    private int lookahead(Board board, int played, int ply, int depth) {
+        if ((++nodes & 255) == 0 && (System.nanoTime() > deadline
+                                     || generation.get() != searchGeneration))
+            aborted = true;
+        // The card a move turns over is unknown to the player
+        if (aborted || ply == depth || Moves.flips(played)
+            || Moves.removesStack(played))
+            return evaluate(board);
+
+        path[ply] = board.hash();
+        int best = evaluate(board);
+        int count = legalMoves(board, ply);
+        for (int i = 0; i < count && !aborted; i++) {
+            int next = board.make(moves[ply][i]);
+            if (!onPath(board.hash(), ply))
+                best = Math.max(best, lookahead(board, next, ply + 1, depth));
+            board.unmake(next);
+        }
+        return best;
+    }
+
+    // The legal moves without deals
+    private int legalMoves(Board board, int ply) {
+        int count = board.legalMoves(moves[ply], 0);
+        if (count > 0 && Moves.isDeal(moves[ply][count - 1]))
+            count--;
+        return count;
+    }
+
+    private boolean onPath(long hash, int ply) {
+        for (int i = 0; i <= ply; i++)
+            if (path[i] == hash)
+                return true;
+        return false;
+    }
+
+    // Score a position from what is visible: completed stacks, cards still
+    // face down, empty columns and suited links between face-up cards
+    static int evaluate(Board board) {
+        int score = board.getNumStacks() * 1000;
+        for (int i = 0; i < Board.COLUMNS; i++) {
+            int size = board.size(i), faceDown = board.faceDown(i);
+            if (size == 0) {
+                score += 60;
+                continue;
+            }
+            score -= faceDown * 50;
+            for (int j = faceDown + 1; j < size; j++) {
+                int upper = board.card(i, j - 1), lower = board.card(i, j);
+                if (Board.value(upper) == Board.value(lower) + 1
+                    && Board.suit(upper) == Board.suit(lower))
+                    score += 20;
+            }
+        }
+        return score;
+    }
+}
@@ -0,0 +1,227 @@
+/*
+The LoadGenerator class plays many games against a GameServer at once and
+reports how quickly moves are answered.
+Games are spread over a number of connections, each driven by its own
+virtual thread. Every game keeps its own Board to pick legal moves, plays
+one move per round and checks the server agrees. At the end it prints the
+move throughput, the latency percentiles in milliseconds and the memory
+the server holds for the games.
+
+Usage: java LoadGenerator [host] [port] [-games N] [-connections N]
+                          [-moves N] [-suits N]
+*/
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+public class LoadGenerator {
+    private String host = "localhost";
+    private int port = GameServer.DEFAULT_PORT;
+    private int games = 10_000, connections = 100, movesPerGame = 20, suits = 1;
+
+    private final LongAdder illegal = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    // Games are ended only once the server has reported holding them all
+    private CountDownLatch played, reported = new CountDownLatch(1);
+    // The move latencies in nanoseconds recorded by each connection
+    private long[][] latencies;
+
+    public static void main(String[] args) throws Exception {
+        LoadGenerator generator = new LoadGenerator();
+        int positional = 0;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-games":
+                    generator.games = Integer.parseInt(args[++i]);
+                    break;
+                case "-connections":
+                    generator.connections = Integer.parseInt(args[++i]);
+                    break;
+                case "-moves":
+                    generator.movesPerGame = Integer.parseInt(args[++i]);
+                    break;
+                case "-suits":
+                    generator.suits = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    if (positional++ == 0)
+                        generator.host = args[i];
+                    else
+                        generator.port = Integer.parseInt(args[i]);
+                    break;
+            }
+        }
+        generator.run();
+    }
+
+    // A blocking connection sending one line and reading one line back
+    private static final class Connection implements AutoCloseable {
+        private final SocketChannel channel;
+        private final ByteBuffer in = ByteBuffer.allocate(4096);
+        private final StringBuilder line = new StringBuilder();
+
+        Connection(String host, int port) throws IOException {
+            channel = SocketChannel.open(new InetSocketAddress(host, port));
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            in.flip();
+        }
+
+        String request(String command) throws IOException {
+            ByteBuffer out = ByteBuffer.wrap((command + "\n")
+                                             .getBytes(StandardCharsets.US_ASCII));
+            while (out.hasRemaining())
+                channel.write(out);
+            line.setLength(0);
+            while (true) {
+                while (in.hasRemaining()) {
+                    char c = (char) in.get();
+                    if (c == '\n')
+                        return line.toString();
+                    line.append(c);
+                }
+                in.clear();
+                int read = channel.read(in);
+                in.flip();
+                if (read < 0)
+                    throw new IOException("Server closed the connection");
+            }
+        }
+
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    // Play every game for the given number of rounds and report
+    public void run() throws Exception {
+        List<Thread> threads = new ArrayList<>();
+        latencies = new long[connections][];
+        played = new CountDownLatch(connections);
+        long begin = System.nanoTime();
+        for (int c = 0; c < connections; c++) {
+            int first = (int) ((long) games * c / connections);
+            int last = (int) ((long) games * (c + 1) / connections);
+            int index = c;
+            threads.add(Thread.ofVirtual().name("load " + c)
+                              .start(() -> play(index, first, last)));
+        }
+        played.await();
+        double seconds = (System.nanoTime() - begin) / 1e9;
+
+        int count = 0;
+        for (long[] l : latencies)
+            count += l.length;
+        long[] all = new long[count];
+        int position = 0;
+        for (long[] l : latencies) {
+            System.arraycopy(l, 0, all, position, l.length);
+            position += l.length;
+        }
+        Arrays.sort(all);
+        System.out.printf("%d games on %d connections, %d moves in %.2f s"
+                          + " (%.0f moves/s), %d illegal, %d errors%n",
+                          games, connections, all.length, seconds,
+                          all.length / seconds, illegal.sum(), errors.sum());
+        if (all.length > 0)
+            System.out.printf("move latency ms: p50 %.3f  p90 %.3f  p99 %.3f"
+                              + "  p99.9 %.3f  max %.3f%n",
+                              percentile(all, 50), percentile(all, 90),
+                              percentile(all, 99), percentile(all, 99.9),
+                              all[all.length - 1] / 1e6);
+        try (Connection connection = new Connection(host, port)) {
+            String[] stats = connection.request("STATS").split(" ");
+            long held = Long.parseLong(stats[1]), state = Long.parseLong(stats[3]);
+            System.out.printf("server: %d games, state %d bytes (%.0f per game),"
+                              + " heap %d MB%n", held, state,
+                              state / Math.max(1.0, held),
+                              Long.parseLong(stats[4]) >> 20);
+        }
+        finally {
+            reported.countDown();
+        }
+        for (Thread thread : threads)
+            thread.join();
+    }
+
+    private static double percentile(long[] sorted, double percent) {
+        int index = (int) Math.ceil(percent / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))] / 1e6;
+    }
+
+    // Start games first to last on one connection, play them a round at a
+    // time and record the latency of every move. The games are ended once
+    // the server was asked how much it holds.
+    private void play(int connection, int first, int last) {
+        int count = last - first;
+        long[] times = new long[count * movesPerGame];
+        int recorded = 0;
+        SplittableRandom random = new SplittableRandom(first);
+        int[] legal = new int[Board.MAX_MOVES];
+        try (Connection server = new Connection(host, port)) {
+            long[] ids = new long[count];
+            Board[] boards = new Board[count];
+            for (int i = 0; i < count; i++) {
+                String reply = server.request("NEW " + suits + " " + (first + i));
+                if (!reply.startsWith("GAME "))
+                    throw new IOException("Unable to start a game: " + reply);
+                ids[i] = Long.parseLong(reply.split(" ")[1]);
+                boards[i] = new Board(new Deck(suits, first + i).getCards());
+            }
+            for (int round = 0; round < movesPerGame; round++) {
+                for (int i = 0; i < count; i++) {
+                    int move = pick(boards[i], legal, random);
+                    if (move < 0)
+                        continue;
+                    long start = System.nanoTime();
+                    String reply = server.request("MOVE " + ids[i] + " "
+                                                  + Moves.format(move));
+                    times[recorded++] = System.nanoTime() - start;
+                    if (reply.startsWith("OK"))
+                        boards[i].make(move);
+                    else if (reply.equals("ILLEGAL"))
+                        illegal.increment();
+                    else
+                        errors.increment();
+                }
+            }
+            latencies[connection] = Arrays.copyOf(times, recorded);
+            played.countDown();
+            reported.await();
+            for (int i = 0; i < count; i++)
+                server.request("END " + ids[i]);
+        }
+        catch (IOException | InterruptedException e) {
+            errors.increment();
+            System.err.println("Connection failed: " + e.getMessage());
+        }
+        finally {
+            // The report waits for every connection, however it ended
+            if (latencies[connection] == null) {
+                latencies[connection] = Arrays.copyOf(times, recorded);
+                played.countDown();
+            }
+        }
+    }
+
+    // Pick a random legal move, dealing only when nothing else is left
+    private static int pick(Board board, int[] legal, SplittableRandom random) {
+        if (board.isWon())
+            return -1;
+        int count = board.legalMoves(legal, 0);
+        if (count == 0)
+            return -1;
+        if (count > 1 && Moves.isDeal(legal[count - 1]))
+            count--;
+        return legal[random.nextInt(count)];
+    }
+}
@@ -0,0 +1,164 @@
+/*
+The MetricsOverlay class shows live timings in a corner of the game window:
+how long events wait on the Swing event thread, how long each frame takes
+to paint and how long it takes from a click until its repaint is done,
+as percentiles of the last few hundred samples in milliseconds.
+It is shown with -Dspider.metrics=true or from the Game menu. Until then
+nothing is measured, the only cost left is a null check per click.
+*/
+
+import java.awt.*;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.swing.*;
+
+public class MetricsOverlay extends JComponent {
+    private static final int SAMPLES = 512;
+    private static final int PROBE_MILLIS = 50, REFRESH_MILLIS = 500;
+    private static final int WIDTH = 420, HEIGHT = 66, MARGIN = 10;
+    private static final Color BACKGROUND = new Color(0, 0, 0, 170);
+    private static final Font FONT = new Font(Font.MONOSPACED, Font.PLAIN, 13);
+
+    private final JLayeredPane layer;
+    private final Samples eventLatency = new Samples("EDT latency");
+    private final Samples paintTime = new Samples("Paint/frame");
+    private final Samples clickToRepaint = new Samples("Click-paint");
+    private final RepaintManager previousManager;
+    private final ScheduledExecutorService probe;
+    private final Timer refresh;
+    private final ComponentAdapter follower = new ComponentAdapter() {
+        public void componentResized(ComponentEvent e) {
+            place();
+        }
+    };
+    // When the click being measured was made, 0 when there is none
+    private long clickNanos;
+
+    // The most recent samples of one timing, in nanoseconds
+    private static final class Samples {
+        private final String name;
+        private final long[] values = new long[SAMPLES];
+        private int count;
+
+        Samples(String name) {
+            this.name = name;
+        }
+
+        synchronized void add(long nanos) {
+            values[count++ % SAMPLES] = nanos;
+        }
+
+        // Describe the median, 95th and 99th percentile of the samples
+        String describe() {
+            long[] sorted;
+            synchronized (this) {
+                sorted = Arrays.copyOf(values, Math.min(count, SAMPLES));
+            }
+            if (sorted.length == 0)
+                return String.format("%-12s no samples", name);
+            Arrays.sort(sorted);
+            return String.format("%-12s p50 %6.2f  p95 %6.2f  p99 %6.2f ms", name,
+                                 percentile(sorted, 50), percentile(sorted, 95),
+                                 percentile(sorted, 99));
+        }
+
+        private static double percentile(long[] sorted, int percent) {
+            int index = (sorted.length * percent + 99) / 100 - 1;
+            return sorted[Math.max(0, index)] / 1e6;
+        }
+    }
+
+    // Paints are timed by the repaint manager, which sees every frame.
+    // Frames that only repaint the overlay are not counted.
+    private class TimingRepaintManager extends RepaintManager {
+        private boolean gameDirty;
+
+        @Override
+        public void addDirtyRegion(JComponent c, int x, int y, int w, int h) {
+            if (c != MetricsOverlay.this)
+                gameDirty = true;
+            super.addDirtyRegion(c, x, y, w, h);
+        }
+
+        @Override
+        public void paintDirtyRegions() {
+            boolean measured = gameDirty;
+            gameDirty = false;
+            long start = System.nanoTime();
+            super.paintDirtyRegions();
+            long end = System.nanoTime();
+            if (!measured)
+                return;
+            paintTime.add(end - start);
+            if (clickNanos != 0) {
+                clickToRepaint.add(end - clickNanos);
+                clickNanos = 0;
+            }
+        }
+    }
+
+    // Show the overlay on a window and start measuring
+    public MetricsOverlay(JFrame frame) {
+        layer = frame.getLayeredPane();
+        setOpaque(false);
+        layer.add(this, JLayeredPane.PALETTE_LAYER);
+        layer.addComponentListener(follower);
+        place();
+
+        previousManager = RepaintManager.currentManager(this);
+        RepaintManager.setCurrentManager(new TimingRepaintManager());
+
+        // Post a probe now and then and time how long it waits to run
+        probe = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "Metrics probe");
+            thread.setDaemon(true);
+            return thread;
+        });
+        probe.scheduleAtFixedRate(() -> {
+            long posted = System.nanoTime();
+            SwingUtilities.invokeLater(() -> eventLatency.add(System.nanoTime() - posted));
+        }, PROBE_MILLIS, PROBE_MILLIS, TimeUnit.MILLISECONDS);
+
+        refresh = new Timer(REFRESH_MILLIS, e -> repaint());
+        refresh.start();
+    }
+
+    // Stop measuring and take the overlay off its window
+    public void dispose() {
+        refresh.stop();
+        probe.shutdownNow();
+        RepaintManager.setCurrentManager(previousManager);
+        layer.removeComponentListener(follower);
+        layer.remove(this);
+        layer.repaint(getBounds());
+    }
+
+    // Note that a click made at when, in milliseconds since the epoch as
+    // MouseEvent.getWhen gives it, was handled. Its repaint is the next frame
+    // painted.
+    public void clicked(long when) {
+        long since = Math.max(0, System.currentTimeMillis() - when);
+        clickNanos = System.nanoTime() - since * 1_000_000;
+    }
+
+    // Keep to the bottom left corner of the window
+    private void place() {
+        setBounds(MARGIN, layer.getHeight() - HEIGHT - MARGIN, WIDTH, HEIGHT);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        g.setColor(BACKGROUND);
+        g.fillRoundRect(0, 0, getWidth(), getHeight(), 10, 10);
+        g.setColor(Color.WHITE);
+        g.setFont(FONT);
+        int line = g.getFontMetrics().getHeight();
+        g.drawString(eventLatency.describe(), 8, 6 + line);
+        g.drawString(paintTime.describe(), 8, 6 + 2 * line);
+        g.drawString(clickToRepaint.describe(), 8, 6 + 3 * line);
+    }
+}
@@ -0,0 +1,67 @@
+/*
+The MoveJournal class records the moves of a game for undo and redo.
+Every entry is the int returned by Board.make, which already holds what
+unmake needs, so undo and redo touch only the moved cards and no board
+is ever copied. Entries past the current position can be redone until a
+new move is recorded.
+*/
+
+import java.util.Arrays;
+
+public class MoveJournal {
+    private int[] moves = new int[64];
+    private int size, top;
+
+    // Record a move that was just played, dropping anything to redo
+    public void record(int played) {
+        if (size == moves.length)
+            moves = Arrays.copyOf(moves, size * 2);
+        moves[size++] = played;
+        top = size;
+    }
+
+    public boolean canUndo() {
+        return size > 0;
+    }
+
+    public boolean canRedo() {
+        return size < top;
+    }
+
+    // Take back the last move, returns the move or -1 if there is none
+    public int undo(Board board) {
+        if (!canUndo())
+            return -1;
+        int played = moves[--size];
+        board.unmake(played);
+        return played;
+    }
+
+    // Play the last undone move again, returns the move or -1 if there is none
+    public int redo(Board board) {
+        if (!canRedo())
+            return -1;
+        moves[size] = board.make(Moves.plain(moves[size]));
+        return moves[size++];
+    }
+
+    // Forget every move
+    public void clear() {
+        size = top = 0;
+    }
+
+    // Get the number of moves played
+    public int size() {
+        return size;
+    }
+
+    // Get the number of moves played plus those that can be redone
+    public int limit() {
+        return top;
+    }
+
+    // Get a move played, as returned by Board.make
+    public int get(int index) {
+        return moves[index];
+    }
+}
@@ -0,0 +1,120 @@
+/*
+The Moves class packs a move into a single int so that move lists and
+solutions can be kept in primitive arrays.
+A move holds its source column, the index where the moved run starts, its
+destination column, the number of cards moved and whether the card it
+uncovers is turned over. Once played, it also records a completed stack
+removed from the destination, which is everything needed to take it back.
+A deal from the stock instead records, per column, whether a stack was
+removed and whether that turned a card over.
+*/
+
+public final class Moves {
+    public static final int DEAL = 1 << 30;
+    public static final int FLIP = 1 << 20;
+    public static final int STACK = 1 << 21;
+    public static final int STACK_FLIP = 1 << 22;
+
+    private static final int COUNT_SHIFT = 15;
+    private static final int SUIT_SHIFT = 23;
+    private static final int FLIP_MASK_SHIFT = 10;
+
+    private Moves() {}
+
+    public static int move(int from, int start, int to) {
+        return from | (start << 4) | (to << 11);
+    }
+
+    // A move as written by the move generator, before it is played
+    public static int move(int from, int start, int to, int count, boolean flip) {
+        return move(from, start, to) | (count << COUNT_SHIFT) | (flip ? FLIP : 0);
+    }
+
+    public static boolean isDeal(int move) {
+        return (move & DEAL) != 0;
+    }
+
+    public static int from(int move) {
+        return move & 0x0F;
+    }
+
+    public static int start(int move) {
+        return (move >> 4) & 0x7F;
+    }
+
+    public static int to(int move) {
+        return (move >> 11) & 0x0F;
+    }
+
+    public static int count(int move) {
+        return (move >> COUNT_SHIFT) & 0x0F;
+    }
+
+    public static boolean flips(int move) {
+        return (move & FLIP) != 0;
+    }
+
+    public static boolean removesStack(int move) {
+        return (move & STACK) != 0;
+    }
+
+    // The suit of the stack a move completed
+    public static int stackSuit(int move) {
+        return (move >> SUIT_SHIFT) & 0x03;
+    }
+
+    static int withStack(int move, int suit, boolean flip) {
+        return move | STACK | (suit << SUIT_SHIFT) | (flip ? STACK_FLIP : 0);
+    }
+
+    // Columns where a deal completed a stack, and where that turned a card
+    public static int dealStacks(int move) {
+        return move & 0x3FF;
+    }
+
+    public static int dealFlips(int move) {
+        return (move >> FLIP_MASK_SHIFT) & 0x3FF;
+    }
+
+    static int deal(int stacks, int flips) {
+        return DEAL | stacks | (flips << FLIP_MASK_SHIFT);
+    }
+
+    // Strip what a played move recorded, leaving the move itself
+    public static int plain(int move) {
+        return isDeal(move) ? DEAL : move(from(move), start(move), to(move));
+    }
+
+    // Write a move in the replay notation: "D" for a deal, otherwise the
+    // source column, run start and destination column counted from 0,
+    // such as "3-4-7"
+    public static String format(int move) {
+        if (isDeal(move))
+            return "D";
+        return from(move) + "-" + start(move) + "-" + to(move);
+    }
+
+    // Read a move written by format
+    public static int parse(String text) {
+        if (text.equals("D"))
+            return DEAL;
+        String[] parts = text.split("-");
+        if (parts.length != 3)
+            throw new IllegalArgumentException("Not a move: " + text);
+        int from = Integer.parseInt(parts[0]);
+        int start = Integer.parseInt(parts[1]);
+        int to = Integer.parseInt(parts[2]);
+        if (from < 0 || from >= Board.COLUMNS || to < 0 || to >= Board.COLUMNS
+            || start < 0 || start >= Board.DECK_SIZE)
+            throw new IllegalArgumentException("Not a move: " + text);
+        return move(from, start, to);
+    }
+
+    // Describe a move for players, piles are numbered from 1
+    public static String toString(int move) {
+        if (isDeal(move))
+            return "Deal";
+        return "Pile " + (from(move) + 1) + " card " + (start(move) + 1)
+               + " to pile " + (to(move) + 1);
+    }
+}
@@ -1,53 +1,42 @@
 /*
 The Pile class represents a pile of cards in the Solitaire game.
-It manages the cards in the pile and handles interactions with the pile.
+It shows one column of the board and handles interactions with the pile.
 */
 
 import java.util.Vector;
 import javax.swing.*;
+import javax.swing.border.Border;
 import java.awt.*;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseAdapter;
 
 public class Pile extends JPanel {
+    private static final Border HIGHLIGHT =
+        BorderFactory.createLineBorder(Color.YELLOW, 10, true);
+    private static final Border BUILD_HIGHLIGHT =
+        BorderFactory.createLineBorder(Color.GREEN, 10, true);
+    private static final Border NO_HIGHLIGHT = BorderFactory.createEmptyBorder();
+
     private Vector<Card> cards;
     private JLayeredPane layeredPane;
-    private static final int OFFSET = 30;
     private Game game;
+    private int column;
 
-    // Constructor for creating a pile from the deck
-    public Pile(Deck deck, int numCards, Game game) {
+    // Constructor for creating the view of one column of the board
+    public Pile(Game game, int column) {
         this.game = game;
+        this.column = column;
         cards = new Vector<Card>();
         configureLayout();
-
-        for (int i = 0; i < numCards; i++) {
-            Card card = deck.drawCard();
-            if (i > 0)
-                cards.get(i - 1).setChild(card);
-            if (i == numCards - 1)
-                card.flipOver();
-            card.setBounds(0, OFFSET * i, 120, 150);
-            cards.add(card);
-            card.setPile(this);
-            layeredPane.add(card, Integer.valueOf(i));
-        }
         addMouseListener(new PileMouseListener());
-        recalculateSize();
+        update();
     }
 
     private class PileMouseListener extends MouseAdapter{
         @Override
         public void mouseClicked(MouseEvent e) {
-            if (isEmpty() && game.getCardSelected()) {
-                Card cardToAdd = game.getCard().get(0);
-                cardToAdd.grabStack();
-                addCard(cardToAdd); // Adding card to an empty space
-                deselectStack(cardToAdd);
-                game.deselectCard();
-                game.updateNumMoves();
-                game.unhighlightPiles();
-            }
+            if (isEmpty())
+                game.pileClicked(column, e.getWhen());
         }
     }
 
@@ -64,6 +53,11 @@ public class Pile extends JPanel {
         return cards.isEmpty();
     }
 
+    // Get the card at an index of the pile
+    Card getCard(int index) {
+        return cards.get(index);
+    }
+
     // Get the top card in the pile
     public Card getTopCard() {
         return cards.isEmpty() ? null : cards.firstElement();
@@ -74,104 +68,79 @@ public class Pile extends JPanel {
         return cards.isEmpty() ? null : cards.lastElement();
     }
 
-    // Check and resolve a stack if necessary
-    public void checkForStack() {
-        Card lastKing = findLastFaceUpKing();
-
-        if (lastKing != null && lastKing.isStackGood()) {
-            Card lastCard = findLastCardInStack(lastKing);
-            if (lastCard.getValue() == 1) {
-                removeStack(lastKing);
-                game.updateNumStacks();
-            }
-        }
+    // Get the column of the board this pile shows
+    public int getColumn() {
+        return column;
     }
 
-    // Finds the last king in the pile
-    private Card findLastFaceUpKing() {
-        Card card = null;
-        // Find the last face-up King card
-        for (int i = 0; i < cards.size(); i++)
-            if (cards.get(i).getValue() == 13 && cards.get(i).getFaceUp())
-                card = cards.get(i);
-        return card; // No face-up King card found
-    }    
-
-    // Find the last card in a stack starting from a given card
-    private Card findLastCardInStack(Card card) {
-        while (card.getChild() != null)
-            card = card.getChild();
-        return card;
+    // Get the distance between cards, a fifth of the card height
+    public int getOffset() {
+        return game.getCardHeight() / 5;
     }
 
-    // Add a card or a stack of cards to the pile
-    public void addCard(Card card) {
-        while (card != null) {
-            card.setPile(this);
-            if (!cards.isEmpty())
-                getBottomCard().setChild(card);
-            card.setBounds(0, OFFSET * cards.size(), 120, 150);
-            cards.add(card);
-            layeredPane.add(card, Integer.valueOf(cards.size()));
-            card = card.getChild();
-        }
-        checkForStack();
-        recalculateSize();
-        // Ensures updates are shown in GUI
-        revalidate();
-        repaint();
+    // Check if the cards from index to the end can be moved together
+    public boolean isRun(int index) {
+        return game.getBoard().isRun(column, index);
     }
 
-    // Take a stack of cards from the pile
-    public void removeStack(Card card) {
-        int loc = cards.indexOf(card);
-        if (loc < 0)
-            return;
-
-        Card newBottomCard = loc > 0 ? cards.get(loc - 1) : null;
-        if (newBottomCard != null) {
-            newBottomCard.setChild(null);
-            if (!newBottomCard.getFaceUp())
-                newBottomCard.flipOver();
+    // Rebind the card views to the current contents of the column, then
+    // lay out and repaint the pile once for all of them
+    public void update() {
+        Board board = game.getBoard();
+        int size = board.size(column);
+
+        while (cards.size() > size) {
+            Card card = cards.remove(cards.size() - 1);
+            layeredPane.remove(card);
+            game.recycleCard(card);
         }
 
-        removeCardsFromLayer(card);
-        cards.subList(loc, cards.size()).clear();
+        for (int i = 0; i < size; i++) {
+            Card card;
+            if (i < cards.size())
+                card = cards.get(i);
+            else {
+                card = game.takeCard();
+                cards.add(card);
+                layeredPane.add(card, Integer.valueOf(i));
+            }
+            card.setPile(this, i);
+            card.setBounds(0, getOffset() * i, game.getCardWidth(),
+                           game.getCardHeight());
+            card.setFace(board.card(column, i), board.isFaceUp(column, i));
+            card.setSelected(game.isSelected(column, i));
+            card.setDragged(game.isDragged(column, i));
+        }
+        switch (game.getHighlight(column)) {
+            case Game.MARKED:
+                highlightPile();
+                break;
+            case Game.BUILD_TARGET:
+                layeredPane.setBorder(BUILD_HIGHLIGHT);
+                break;
+            default:
+                unhighlightPile();
+                break;
+        }
         recalculateSize();
     }
 
-    // Remove cards from the layered pane
-    private void removeCardsFromLayer(Card card) {
-        while (card != null) {
-            layeredPane.remove(card);
-            card = card.getChild();
-        }
-    }
-    
     // Recalculate the size of the pile
     public void recalculateSize() {
-        int newHeight = ((cards.size() - 1) * OFFSET) + 150;
-        // setPreferredSize(new Dimension(120, newHeight));
-        setSize(new Dimension(120, newHeight));
+        int newHeight = ((cards.size() - 1) * getOffset()) + game.getCardHeight();
+        setSize(new Dimension(game.getCardWidth(), newHeight));
 
         // Ensures updates are show in GUI
         revalidate();
         repaint();
     }
 
-    // Deselect a stack of cards
-    private void deselectStack(Card card) {
-        while (card != null) {
-            card.deselect();
-            card = card.getChild();
-        }
-    }
-
+    // The borders are shared, so setting the one already shown does nothing
     protected void highlightPile(){
-        layeredPane.setBorder(BorderFactory.createLineBorder(Color.YELLOW, 10, true));
+        layeredPane.setBorder(HIGHLIGHT);
     }
 
     protected void unhighlightPile(){
-        layeredPane.setBorder(BorderFactory.createEmptyBorder());
+        layeredPane.setBorder(NO_HIGHLIGHT);
     }
 }
\ No newline at end of file
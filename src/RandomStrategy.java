@@ -0,0 +1,25 @@
+/*
+The RandomStrategy class plays a random legal move and deals only when
+nothing else is left. It is the baseline every other strategy should beat.
+The moves of a deal are the same on every run.
+*/
+
+import java.util.SplittableRandom;
+
+public class RandomStrategy implements Strategy {
+    private final int[] moves = new int[Board.MAX_MOVES];
+    private SplittableRandom random = new SplittableRandom();
+
+    public void newGame(long deal) {
+        random = new SplittableRandom(deal);
+    }
+
+    public int chooseMove(View view) {
+        int count = view.legalMoves(moves, 0);
+        if (count == 0)
+            return RESIGN;
+        if (count > 1 && Moves.isDeal(moves[count - 1]))
+            count--;
+        return moves[random.nextInt(count)];
+    }
+}
@@ -0,0 +1,157 @@
+/*
+The ReplayVerifier class checks recorded games without a display.
+Each replay is a deal number, a suit count and the moves played. It is
+replayed on a Board with the same rules as the game, and the verifier
+reports whether every move was legal, whether the game was won, the final
+move and stack counts and how long the check took.
+
+Replays are read from a file, or every file in a directory, one replay per
+line in the form "<deal> <suits> <move> <move> ...", with moves written by
+Moves.format. Saved games (*.save) are verified as well. Files are
+checked in parallel on every core, and so are the lines of a file, which
+is read a block of lines at a time so a file of any size is streamed. The
+report keeps the order of the files and lines. A replay that
+cannot be read, such as a damaged upload, is reported as illegal and the
+rest are still checked.
+
+Usage: java ReplayVerifier <file or directory> [report]
+*/
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+public class ReplayVerifier {
+    // Lines read and checked together
+    private static final int BLOCK = 4096;
+
+    private final LongAdder replays = new LongAdder();
+    private final LongAdder legal = new LongAdder();
+    private final LongAdder won = new LongAdder();
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: java ReplayVerifier <file or directory>"
+                               + " [report]");
+            System.exit(1);
+        }
+        Path source = Paths.get(args[0]);
+        Writer writer = args.length > 1 ? new FileWriter(args[1])
+                                        : new OutputStreamWriter(System.out);
+        try (PrintWriter out = new PrintWriter(new BufferedWriter(writer))) {
+            new ReplayVerifier().run(source, out);
+        }
+    }
+
+    // Verify every replay under source and write one report line for each
+    public void run(Path source, PrintWriter out) throws IOException {
+        long begin = System.nanoTime();
+        out.println("replay,deal,suits,legal,illegal move,won,moves,stacks,micros");
+        try (Stream<Path> files = Files.isDirectory(source)
+                                  ? Files.walk(source).filter(Files::isRegularFile).sorted()
+                                  : Stream.of(source)) {
+            files.parallel()
+                 .map(this::verifyFile)
+                 .forEachOrdered(report -> report.forEach(out::println));
+        }
+        double seconds = (System.nanoTime() - begin) / 1e9;
+        System.err.printf("%d replays, %d legal, %d won in %.3f s"
+                          + " (%.0f replays/s)%n",
+                          replays.sum(), legal.sum(), won.sum(), seconds,
+                          replays.sum() / Math.max(seconds, 1e-9));
+    }
+
+    // Verify the replays of one file and return their report lines
+    private List<String> verifyFile(Path file) {
+        if (file.toString().endsWith(".save"))
+            return List.of(verifySave(file));
+        List<String> report = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            List<String> lines = new ArrayList<>(BLOCK);
+            int number = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+                if (lines.size() == BLOCK) {
+                    verifyLines(file, number, lines, report);
+                    number += lines.size();
+                    lines.clear();
+                }
+            }
+            verifyLines(file, number, lines, report);
+        }
+        catch (IOException | UncheckedIOException e) {
+            System.err.println("Unable to read " + file + ": " + e.getMessage());
+        }
+        return report;
+    }
+
+    // Verify a block of lines in parallel, the first being the line after
+    // number, and add their reports in order
+    private void verifyLines(Path file, int number, List<String> lines,
+                             List<String> report) {
+        IntStream.range(0, lines.size())
+                 .parallel()
+                 .filter(i -> !lines.get(i).isBlank() && !lines.get(i).startsWith("#"))
+                 .mapToObj(i -> verifyLine(file + ":" + (number + i + 1), lines.get(i)))
+                 .forEachOrdered(report::add);
+    }
+
+    // Verify one replay line
+    String verifyLine(String name, String text) {
+        String[] parts = text.trim().split("\\s+");
+        try {
+            long seed = Long.parseLong(parts[0]);
+            int suits = Integer.parseInt(parts[1]);
+            int[] moves = new int[parts.length - 2];
+            for (int i = 0; i < moves.length; i++)
+                moves[i] = Moves.parse(parts[i + 2]);
+            return verify(name, seed, suits, moves);
+        }
+        catch (RuntimeException e) {
+            replays.increment();
+            return name + ",,,false,,false,,,";
+        }
+    }
+
+    private String verifySave(Path file) {
+        try (SaveFile save = SaveFile.openReadOnly(file)) {
+            return verify(file.toString(), save.getSeed(), save.getSuits(),
+                          save.getMoves());
+        }
+        catch (IOException | RuntimeException e) {
+            replays.increment();
+            return file + ",,,false,,false,,,";
+        }
+    }
+
+    // Replay the moves on the numbered deal, stopping at the first illegal one
+    String verify(String name, long seed, int suits, int[] moves) {
+        long begin = System.nanoTime();
+        replays.increment();
+        if (suits != 1 && suits != 2 && suits != 4)
+            return name + "," + seed + "," + suits + ",false,,false,,,";
+
+        Board board = new Board(new Deck(suits, seed).getCards());
+        int illegal = -1;
+        for (int i = 0; i < moves.length && illegal < 0; i++) {
+            if (board.isLegal(moves[i]))
+                board.make(moves[i]);
+            else
+                illegal = i;
+        }
+        if (illegal < 0)
+            legal.increment();
+        if (illegal < 0 && board.isWon())
+            won.increment();
+        long micros = (System.nanoTime() - begin) / 1000;
+        return name + "," + seed + "," + suits + "," + (illegal < 0) + ","
+               + (illegal < 0 ? "" : String.valueOf(illegal)) + ","
+               + (illegal < 0 && board.isWon()) + "," + board.getNumMoves() + ","
+               + board.getNumStacks() + "," + micros;
+    }
+}
@@ -0,0 +1,192 @@
+/*
+The SaveFile class keeps the game in progress on disk so it survives the
+window closing or the machine losing power.
+The file is a small header with the deal number, the suit count and the
+game stats, followed by an append-only log of moves, all written through a
+memory-mapped buffer and forced to disk after every move. A saved game is
+resumed by dealing the same cards and replaying the log, which takes
+milliseconds even for long games.
+A save only read, such as by the replay verifier, is mapped read only.
+Closing a save closes its channel and drops its buffer, the mapping itself
+is released when the buffer is garbage collected.
+*/
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+
+public class SaveFile implements Closeable {
+    private static final int MAGIC = 0x53504452;
+    private static final int VERSION = 1;
+
+    // Header layout, moves follow it one int each
+    private static final int SEED = 8, SUITS = 16, MOVES = 20, DEALS = 24,
+                             STACKS = 28, COUNT = 32, TOP = 36, HEADER = 48;
+    private static final int INITIAL_SIZE = 64 * 1024;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final boolean writable;
+    private MappedByteBuffer buffer;
+
+    private SaveFile(Path path, FileChannel channel, long size, boolean writable)
+            throws IOException {
+        this.path = path;
+        this.channel = channel;
+        this.writable = writable;
+        map(size);
+    }
+
+    // Get where the game in progress is kept
+    public static Path defaultPath() {
+        return Paths.get(System.getProperty("user.home"), ".spider-solitaire",
+                         "game.save");
+    }
+
+    public static boolean exists(Path path) {
+        return Files.isRegularFile(path);
+    }
+
+    // Start a new save for a deal, replacing any older one
+    public static SaveFile create(Path path, long seed, int suits) throws IOException {
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                                               StandardOpenOption.READ,
+                                               StandardOpenOption.WRITE,
+                                               StandardOpenOption.TRUNCATE_EXISTING);
+        SaveFile file = new SaveFile(path, channel, INITIAL_SIZE, true);
+        file.buffer.putLong(SEED, seed);
+        file.buffer.putInt(SUITS, suits);
+        file.buffer.putInt(DEALS, Board.DEALS);
+        file.buffer.putInt(4, VERSION);
+        // The magic number goes last so a half written header is never valid
+        file.buffer.force();
+        file.buffer.putInt(0, MAGIC);
+        file.buffer.force();
+        return file;
+    }
+
+    // Open a save that was written before, to resume and keep playing it
+    public static SaveFile open(Path path) throws IOException {
+        return open(path, true);
+    }
+
+    // Open a save that was written before only to read it
+    public static SaveFile openReadOnly(Path path) throws IOException {
+        return open(path, false);
+    }
+
+    private static SaveFile open(Path path, boolean writable) throws IOException {
+        FileChannel channel = writable
+                              ? FileChannel.open(path, StandardOpenOption.READ,
+                                                 StandardOpenOption.WRITE)
+                              : FileChannel.open(path, StandardOpenOption.READ);
+        long size = channel.size();
+        if (size < HEADER) {
+            channel.close();
+            throw new IOException("Save file is too short");
+        }
+        SaveFile file = new SaveFile(path, channel, size, writable);
+        try {
+            file.checkHeader();
+        }
+        catch (IOException e) {
+            file.close();
+            throw e;
+        }
+        return file;
+    }
+
+    // Reject a header that was not written by this class or was damaged
+    private void checkHeader() throws IOException {
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION)
+            throw new IOException("Not a saved game");
+        int suits = buffer.getInt(SUITS);
+        if (suits != 1 && suits != 2 && suits != 4)
+            throw new IOException("Save file has " + suits + " suits");
+        int count = buffer.getInt(COUNT), top = buffer.getInt(TOP);
+        if (buffer.getInt(MOVES) < 0 || buffer.getInt(DEALS) < 0
+            || buffer.getInt(STACKS) < 0 || count < 0 || top < count
+            || HEADER + (long) top * Integer.BYTES > buffer.capacity())
+            throw new IOException("Save file is damaged");
+    }
+
+    private void map(long size) throws IOException {
+        buffer = channel.map(writable ? FileChannel.MapMode.READ_WRITE
+                                      : FileChannel.MapMode.READ_ONLY, 0, size);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    public long getSeed() {
+        return buffer.getLong(SEED);
+    }
+
+    public int getSuits() {
+        return buffer.getInt(SUITS);
+    }
+
+    // Rebuild the position by replaying the logged moves on a board freshly
+    // dealt from the same deal number. Moves that were undone are kept in
+    // the journal so they can still be redone.
+    public void restore(Board board, MoveJournal journal) throws IOException {
+        int count = buffer.getInt(COUNT), top = buffer.getInt(TOP);
+        if (count < 0 || top < count
+            || HEADER + (long) top * Integer.BYTES > buffer.capacity())
+            throw new IOException("Save file is damaged");
+        for (int i = 0; i < top; i++) {
+            int move = buffer.getInt(HEADER + i * Integer.BYTES);
+            // Board.isLegal rejects any move a damaged or edited log holds
+            if (!board.isLegal(move))
+                throw new IOException("Save file has an illegal move at " + i);
+            journal.record(board.make(move));
+        }
+        for (int i = count; i < top; i++)
+            journal.undo(board);
+    }
+
+    // Get the moves played, leaving out any that were undone
+    public int[] getMoves() throws IOException {
+        int count = buffer.getInt(COUNT);
+        if (count < 0 || HEADER + (long) count * Integer.BYTES > buffer.capacity())
+            throw new IOException("Save file is damaged");
+        int[] moves = new int[count];
+        for (int i = 0; i < count; i++)
+            moves[i] = buffer.getInt(HEADER + i * Integer.BYTES);
+        return moves;
+    }
+
+    // Bring the file up to date with the journal. If index is not negative
+    // the move at that index was just played and is logged first, then the
+    // header is updated, so a crash in between loses at most that move.
+    public void write(Board board, MoveJournal journal, int index) throws IOException {
+        if (!writable)
+            throw new IOException("Save file is open read only");
+        if (index >= 0) {
+            int position = HEADER + index * Integer.BYTES;
+            if (position + Integer.BYTES > buffer.capacity())
+                map(buffer.capacity() * 2L);
+            buffer.putInt(position, Moves.plain(journal.get(index)));
+            buffer.force(position, Integer.BYTES);
+        }
+        buffer.putInt(MOVES, board.getNumMoves());
+        buffer.putInt(DEALS, board.getNumDeals());
+        buffer.putInt(STACKS, board.getNumStacks());
+        buffer.putInt(TOP, journal.limit());
+        buffer.putInt(COUNT, journal.size());
+        buffer.force(0, HEADER);
+    }
+
+    // Remove the save, once the game is over
+    public void delete() throws IOException {
+        close();
+        Files.deleteIfExists(path);
+    }
+
+    public void close() throws IOException {
+        buffer = null;
+        channel.close();
+    }
+}
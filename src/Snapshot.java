@@ -0,0 +1,319 @@
+/*
+The Snapshot class is an immutable position of a Spider Solitaire game for
+analysis that branches many times, such as hints, solving and exploring
+what-ifs.
+Playing a move returns a new snapshot and leaves this one as it was. The
+new snapshot shares the deck and every column the move did not touch with
+its parent, so a move costs the two columns it changes, not all 104 cards.
+Each column keeps its part of the Zobrist hash, which makes the hash of a
+new snapshot a few XORs, and equal snapshots almost always share columns,
+so comparing them rarely looks at a card. The rules are those of Board and
+the hash is the one Board keeps for the same position.
+*/
+
+import java.util.Arrays;
+
+public final class Snapshot {
+    // A column that never changes, shared by every snapshot holding it
+    private static final class Column {
+        final byte[] cards;
+        final int faceDown;
+        // Where the movable run at the end of the column begins
+        final int runStart;
+        // The column's part of the hash of the position
+        final long hash;
+
+        Column(int index, byte[] cards, int faceDown) {
+            this.cards = cards;
+            this.faceDown = faceDown;
+            int start = cards.length - 1;
+            while (start > faceDown && Board.follows(cards[start - 1], cards[start]))
+                start--;
+            runStart = Math.max(0, start);
+            long h = Board.faceDownKey(index, faceDown);
+            for (int j = 0; j < cards.length; j++)
+                h ^= Board.cardKey(index, j, cards[j]);
+            hash = h;
+        }
+
+        int size() {
+            return cards.length;
+        }
+
+        // Check if the column ends with a complete king to ace run
+        boolean endsWithStack() {
+            int size = cards.length;
+            return size >= Board.KING && runStart <= size - Board.KING
+                   && Board.value(cards[size - Board.KING]) == Board.KING;
+        }
+    }
+
+    private final byte[] deck;
+    private final Column[] columns;
+    private final int stockIndex, numStacks, numDeals, numMoves;
+    private final long hash;
+
+    // Constructor for a snapshot of a board's position, sharing its deck
+    public Snapshot(Board board) {
+        deck = board.getDeck();
+        columns = new Column[Board.COLUMNS];
+        long h = Board.stockKey(board.getStockIndex());
+        for (int i = 0; i < Board.COLUMNS; i++) {
+            byte[] cards = new byte[board.size(i)];
+            for (int j = 0; j < cards.length; j++)
+                cards[j] = (byte) board.card(i, j);
+            columns[i] = new Column(i, cards, board.faceDown(i));
+            h ^= columns[i].hash;
+        }
+        stockIndex = board.getStockIndex();
+        numStacks = board.getNumStacks();
+        numDeals = board.getNumDeals();
+        numMoves = board.getNumMoves();
+        hash = h;
+    }
+
+    private Snapshot(Snapshot parent, Column[] columns, int stockIndex,
+                     int numStacks, int numDeals) {
+        deck = parent.deck;
+        this.columns = columns;
+        this.stockIndex = stockIndex;
+        this.numStacks = numStacks;
+        this.numDeals = numDeals;
+        numMoves = parent.numMoves + 1;
+        long h = parent.hash ^ Board.stockKey(parent.stockIndex)
+                 ^ Board.stockKey(stockIndex);
+        for (int i = 0; i < Board.COLUMNS; i++)
+            if (columns[i] != parent.columns[i])
+                h ^= parent.columns[i].hash ^ columns[i].hash;
+        hash = h;
+    }
+
+    // Get a mutable board of this position, for searches that make and
+    // unmake moves in place
+    public Board toBoard() {
+        return new Board(deck, pack());
+    }
+
+    // Pack the position the same way as Board.pack
+    public byte[] pack() {
+        int length = 7 + 2 * Board.COLUMNS;
+        for (Column column : columns)
+            length += column.size();
+        byte[] packed = new byte[length];
+        packed[0] = (byte) stockIndex;
+        packed[1] = (byte) numStacks;
+        packed[2] = (byte) numDeals;
+        packed[3] = (byte) (numMoves >>> 24);
+        packed[4] = (byte) (numMoves >>> 16);
+        packed[5] = (byte) (numMoves >>> 8);
+        packed[6] = (byte) numMoves;
+        int position = 7;
+        for (Column column : columns) {
+            packed[position++] = (byte) column.size();
+            packed[position++] = (byte) column.faceDown;
+            System.arraycopy(column.cards, 0, packed, position, column.size());
+            position += column.size();
+        }
+        return packed;
+    }
+
+    // Check if the run starting at start can be moved onto another column,
+    // columns out of range are never legal, as for Board
+    public boolean canMove(int from, int start, int to) {
+        if (from == to || from < 0 || from >= Board.COLUMNS || to < 0
+            || to >= Board.COLUMNS)
+            return false;
+        Column source = columns[from], target = columns[to];
+        if (start < source.runStart || start < source.faceDown
+            || start >= source.size())
+            return false;
+        return target.size() == 0
+               || Board.follows(target.cards[target.size() - 1], source.cards[start]);
+    }
+
+    // Check if a deal is allowed, there must be no empty column
+    public boolean canDeal() {
+        if (numDeals == 0 || stockIndex + Board.COLUMNS > Board.DECK_SIZE)
+            return false;
+        for (Column column : columns)
+            if (column.size() == 0)
+                return false;
+        return true;
+    }
+
+    // Check if a move packed by the Moves class is legal
+    public boolean isLegal(int move) {
+        if (Moves.isDeal(move))
+            return canDeal();
+        return canMove(Moves.from(move), Moves.start(move), Moves.to(move));
+    }
+
+    // Write every legal move into the buffer from offset on and return how
+    // many there are, in the same order as Board.legalMoves
+    public int legalMoves(int[] moves, int offset) {
+        int count = offset;
+        for (int from = 0; from < Board.COLUMNS; from++) {
+            Column source = columns[from];
+            int size = source.size();
+            if (size == 0)
+                continue;
+            int fd = source.faceDown;
+            int bottom = Board.value(source.cards[size - 1]);
+
+            for (int to = 0; to < Board.COLUMNS; to++) {
+                if (to == from)
+                    continue;
+                Column target = columns[to];
+                if (target.size() == 0) {
+                    for (int start = source.runStart; start < size; start++)
+                        moves[count++] = Moves.move(from, start, to, size - start,
+                                                    start == fd && fd > 0);
+                    continue;
+                }
+                int card = target.cards[target.size() - 1];
+                int start = size - Board.value(card) + bottom;
+                if (start >= source.runStart && start < size
+                    && Board.suit(card) == Board.suit(source.cards[start]))
+                    moves[count++] = Moves.move(from, start, to, size - start,
+                                                start == fd && fd > 0);
+            }
+        }
+        if (canDeal())
+            moves[count++] = Moves.DEAL;
+        return count - offset;
+    }
+
+    // Play a move packed by the Moves class and return the snapshot after
+    // it, or null if it is not legal
+    public Snapshot play(int move) {
+        if (!isLegal(move))
+            return null;
+        if (Moves.isDeal(move))
+            return deal();
+        int from = Moves.from(move), start = Moves.start(move), to = Moves.to(move);
+        Column source = columns[from], target = columns[to];
+        Column[] next = columns.clone();
+        next[from] = cut(from, source, start);
+
+        byte[] cards = Arrays.copyOf(target.cards, target.size() + source.size() - start);
+        System.arraycopy(source.cards, start, cards, target.size(), source.size() - start);
+        next[to] = new Column(to, cards, target.faceDown);
+        int stacks = numStacks;
+        // A completed stack always ends with the moved run
+        if (next[to].endsWithStack()) {
+            next[to] = cut(to, next[to], next[to].size() - Board.KING);
+            stacks++;
+        }
+        return new Snapshot(this, next, stockIndex, stacks, numDeals);
+    }
+
+    // Deal one face up card from the stock to every column
+    private Snapshot deal() {
+        Column[] next = new Column[Board.COLUMNS];
+        int stacks = numStacks;
+        for (int i = 0; i < Board.COLUMNS; i++) {
+            Column column = columns[i];
+            byte[] cards = Arrays.copyOf(column.cards, column.size() + 1);
+            cards[column.size()] = deck[stockIndex + i];
+            next[i] = new Column(i, cards, column.faceDown);
+            if (next[i].endsWithStack()) {
+                next[i] = cut(i, next[i], next[i].size() - Board.KING);
+                stacks++;
+            }
+        }
+        return new Snapshot(this, next, stockIndex + Board.COLUMNS, stacks,
+                            numDeals - 1);
+    }
+
+    // Take the cards from start on off a column, turning over the card it
+    // uncovers
+    private static Column cut(int index, Column column, int start) {
+        int faceDown = Math.min(column.faceDown, start);
+        if (start > 0 && faceDown == start)
+            faceDown--;
+        return new Column(index, Arrays.copyOf(column.cards, start), faceDown);
+    }
+
+    // Check if every card has been cleared from the board
+    public boolean isWon() {
+        return numStacks == Board.STACKS;
+    }
+
+    // Getters
+    public int size(int column) {
+        return columns[column].size();
+    }
+
+    public int faceDown(int column) {
+        return columns[column].faceDown;
+    }
+
+    public int card(int column, int index) {
+        return columns[column].cards[index];
+    }
+
+    public boolean isFaceUp(int column, int index) {
+        return index >= columns[column].faceDown;
+    }
+
+    public int runStart(int column) {
+        return columns[column].runStart;
+    }
+
+    public int runLength(int column) {
+        return size(column) - runStart(column);
+    }
+
+    public boolean isStockEmpty() {
+        return stockIndex == Board.DECK_SIZE;
+    }
+
+    public int getStockIndex() {
+        return stockIndex;
+    }
+
+    public int getNumStacks() {
+        return numStacks;
+    }
+
+    public int getNumDeals() {
+        return numDeals;
+    }
+
+    public int getNumMoves() {
+        return numMoves;
+    }
+
+    // Get the Zobrist hash of the position, equal to Board.hash
+    public long hash() {
+        return hash;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    // Snapshots are equal when their positions are, whatever the number of
+    // moves it took. Different hashes settle almost every comparison and
+    // shared columns are equal without looking at their cards.
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof Snapshot))
+            return false;
+        Snapshot other = (Snapshot) o;
+        if (hash != other.hash || stockIndex != other.stockIndex)
+            return false;
+        for (int i = 0; i < Board.COLUMNS; i++) {
+            Column a = columns[i], b = other.columns[i];
+            if (a != b && (a.hash != b.hash || a.faceDown != b.faceDown
+                           || !Arrays.equals(a.cards, b.cards)))
+                return false;
+        }
+        return deck == other.deck
+               || Arrays.equals(deck, stockIndex, Board.DECK_SIZE,
+                                other.deck, stockIndex, Board.DECK_SIZE);
+    }
+}
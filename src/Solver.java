@@ -0,0 +1,180 @@
+/*
+The Solver class decides whether a position can be won.
+It runs a depth-first search over the board with every face-down card
+known, skips positions it has already reached through a transposition
+table, and tries the most promising moves first. The search stops when it
+runs out of its node or time budget.
+*/
+
+import java.util.Arrays;
+
+public class Solver {
+    public enum Status {WINNABLE, UNWINNABLE, UNKNOWN}
+
+    // The result of a search, moves is the winning line when there is one
+    public static class Result {
+        private final Status status;
+        private final int[] moves;
+        private final long nodes, millis;
+
+        Result(Status status, int[] moves, long nodes, long millis) {
+            this.status = status;
+            this.moves = moves;
+            this.nodes = nodes;
+            this.millis = millis;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public int[] getMoves() {
+            return moves.clone();
+        }
+
+        public long getNodes() {
+            return nodes;
+        }
+
+        public long getMillis() {
+            return millis;
+        }
+    }
+
+    public static final long DEFAULT_NODES = 2_000_000;
+    public static final long DEFAULT_MILLIS = 5_000;
+    public static final int DEFAULT_TABLE = 1 << 20;
+
+    private final long maxNodes, maxMillis;
+    private final TranspositionTable table;
+    private final int[] scores = new int[Board.MAX_MOVES];
+
+    // The search path, kept in primitive arrays that only grow, so a solver
+    // that is reused allocates nothing per position. The ordered moves of
+    // every depth sit one after another in moveStack, and played holds the
+    // move taken at each depth as returned by Board.make.
+    private int[] moveStack = new int[Board.MAX_MOVES * 64];
+    private int[] next = new int[256], end = new int[256];
+    private int[] played = new int[256];
+
+    // Constructor for a solver with the default budget
+    public Solver() {
+        this(DEFAULT_NODES, DEFAULT_MILLIS, DEFAULT_TABLE);
+    }
+
+    // Constructor for a solver with a node budget, a time budget in
+    // milliseconds and the number of positions the table remembers
+    public Solver(long maxNodes, long maxMillis, int tableSize) {
+        this.maxNodes = maxNodes;
+        this.maxMillis = maxMillis;
+        table = new TranspositionTable(tableSize);
+    }
+
+    // Search for a win from the given position, the board is not changed.
+    // A position is only reported unwinnable once every reachable position
+    // has been searched.
+    public Result solve(Board start) {
+        long begin = System.nanoTime();
+        long deadline = begin + maxMillis * 1_000_000L;
+        long nodes = 0;
+        table.clear();
+
+        Board board = new Board(start);
+        table.add(board.hash());
+        if (board.isWon())
+            return result(Status.WINNABLE, 0, nodes, begin);
+        int depth = 0;
+        generate(board, 0, 0);
+
+        while (depth >= 0) {
+            if (next[depth] == end[depth]) {
+                // Every move from here failed, back up a level
+                if (--depth >= 0)
+                    board.unmake(played[depth]);
+                continue;
+            }
+
+            int token = board.make(moveStack[next[depth]++]);
+            nodes++;
+
+            if (nodes >= maxNodes
+                || ((nodes & 1023) == 0 && System.nanoTime() > deadline))
+                return result(Status.UNKNOWN, 0, nodes, begin);
+            if (!table.add(board.hash())) {
+                board.unmake(token);
+                continue;
+            }
+
+            played[depth++] = token;
+            if (board.isWon())
+                return result(Status.WINNABLE, depth, nodes, begin);
+            generate(board, depth, end[depth - 1]);
+        }
+        return result(Status.UNWINNABLE, 0, nodes, begin);
+    }
+
+    private Result result(Status status, int depth, long nodes, long begin) {
+        int[] moves = new int[depth];
+        for (int i = 0; i < depth; i++)
+            moves[i] = Moves.plain(played[i]);
+        return new Result(status, moves, nodes,
+                          (System.nanoTime() - begin) / 1_000_000L);
+    }
+
+    // Write the legal moves of a position for a depth, best first
+    private void generate(Board board, int depth, int offset) {
+        if (depth == next.length) {
+            next = Arrays.copyOf(next, depth * 2);
+            end = Arrays.copyOf(end, depth * 2);
+            played = Arrays.copyOf(played, depth * 2);
+        }
+        if (offset + Board.MAX_MOVES > moveStack.length)
+            moveStack = Arrays.copyOf(moveStack, moveStack.length * 2);
+
+        int count = board.legalMoves(moveStack, offset);
+        for (int i = 0; i < count; i++)
+            scores[i] = score(board, moveStack[offset + i]);
+        sort(moveStack, offset, count);
+        next[depth] = offset;
+        end[depth] = offset + count;
+    }
+
+    // Higher scores are tried first. Moves that turn over a face-down card
+    // come first, then joins that build the longest suited runs, and moves
+    // into an empty column and deals last.
+    private static int score(Board board, int move) {
+        if (Moves.isDeal(move))
+            return Integer.MIN_VALUE;
+        int from = Moves.from(move), start = Moves.start(move), to = Moves.to(move);
+        int score = 0;
+        if (Moves.flips(move))
+            score += 1000 - board.faceDown(from) * 10;
+        if (start == 0)
+            score += 500;
+        if (board.size(to) == 0)
+            score -= 2000;
+        else {
+            int runAfter = board.size(to) - board.runStart(to)
+                           + Moves.count(move);
+            score += runAfter * 20;
+            // Splitting a longer run in the source is rarely useful
+            if (start > board.runStart(from))
+                score -= 300;
+        }
+        return score;
+    }
+
+    // Insertion sort of the moves by descending score, lists are short
+    private void sort(int[] moves, int offset, int count) {
+        for (int i = 1; i < count; i++) {
+            int move = moves[offset + i], score = scores[i], j = i - 1;
+            while (j >= 0 && scores[j] < score) {
+                moves[offset + j + 1] = moves[offset + j];
+                scores[j + 1] = scores[j];
+                j--;
+            }
+            moves[offset + j + 1] = move;
+            scores[j + 1] = score;
+        }
+    }
+}
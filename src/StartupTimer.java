@@ -0,0 +1,52 @@
+/*
+The StartupTimer class measures how quickly the game becomes usable.
+It notes when the start menu is first shown, when the player picked a deal
+and when the first deal is on screen, all counted from the launch of the
+JVM. Run with -Dspider.startup.report=true to have the times printed to
+standard error once the first deal is shown.
+*/
+
+public final class StartupTimer {
+    private static final boolean REPORT = Boolean.getBoolean("spider.startup.report");
+    private static final long launch = launchMillis();
+    private static long firstFrame = -1, dealChosen = -1, firstDeal = -1;
+
+    private StartupTimer() {}
+
+    // The JVM start when the platform knows it, otherwise the time this
+    // class was loaded, which is early in startMenu
+    private static long launchMillis() {
+        return ProcessHandle.current().info().startInstant()
+                            .map(instant -> instant.toEpochMilli())
+                            .orElse(System.currentTimeMillis());
+    }
+
+    // The start menu has been shown
+    static void firstFrame() {
+        if (firstFrame < 0)
+            firstFrame = System.currentTimeMillis() - launch;
+    }
+
+    // The player picked a deal from the start menu
+    static void dealChosen() {
+        if (dealChosen < 0)
+            dealChosen = System.currentTimeMillis() - launch;
+    }
+
+    // The first deal has been shown, report if asked to
+    static void firstDeal() {
+        if (firstDeal >= 0)
+            return;
+        firstDeal = System.currentTimeMillis() - launch;
+        if (REPORT)
+            System.err.println(report());
+    }
+
+    static String report() {
+        String text = "Startup: first frame " + firstFrame + " ms, first deal "
+                      + firstDeal + " ms";
+        if (dealChosen >= 0)
+            text += " (" + (firstDeal - dealChosen) + " ms after the deal was chosen)";
+        return text;
+    }
+}
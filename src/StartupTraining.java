@@ -0,0 +1,53 @@
+/*
+The StartupTraining class is the workload the build runs to record the
+class-data-sharing archive of the game. It loads and uses the classes a
+player's first deal needs, without a display: the card images, the board
+and its rules, the pile views and the canvas, the hint search and the
+move log. The JVM then writes every class it loaded to the archive when
+this exits.
+
+Usage: java -XX:ArchiveClassesAtExit=<archive> -Djava.awt.headless=true StartupTraining
+*/
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+public class StartupTraining {
+    public static void main(String[] args) throws Exception {
+        for (Card.Suit suit : Card.Suit.values())
+            for (int value = 1; value <= Board.KING; value++)
+                CardImages.front(value, suit, 120, 150);
+        CardImages.back(120, 150);
+
+        // Play the legal moves of a few deals through the views
+        int[] moves = new int[Board.MAX_MOVES];
+        for (int suits : new int[] {1, 2, 4}) {
+            Board board = new Board(new Deck(suits, suits).getCards());
+            Game game = new Game(board);
+            MoveJournal journal = new MoveJournal();
+            for (int i = 0; i < 50 && !board.isWon(); i++) {
+                int count = board.legalMoves(moves, 0);
+                if (count == 0)
+                    break;
+                journal.record(board.make(moves[i % count]));
+                game.getPile(0).update();
+            }
+            while (journal.canUndo())
+                journal.undo(board);
+            HintEngine.evaluate(board);
+            Moves.format(Moves.DEAL);
+
+            BoardCanvas canvas = new BoardCanvas(game);
+            canvas.setSize(1920, 1080);
+            BufferedImage image = new BufferedImage(1920, 1080,
+                                                    BufferedImage.TYPE_INT_ARGB_PRE);
+            Graphics2D g = image.createGraphics();
+            canvas.paint(g);
+            g.dispose();
+            DragLayer.compose(board, 0, board.runStart(0), 30, 120, 150);
+            game.restart(suits, suits + 1);
+        }
+        // The timer reports on the first deal of every launch
+        System.err.println(StartupTimer.report());
+    }
+}
@@ -0,0 +1,44 @@
+/*
+The Strategy interface is a bot that plays Spider Solitaire.
+It sees what a player sees: the ten piles with their face-up cards, how
+many cards are left in the stock and how many deals remain. It answers
+each position with a move or a deal, packed by the Moves class, and the
+Tournament class plays it over many deals at once to compare bots.
+A strategy object plays one game at a time on one thread.
+*/
+
+public interface Strategy {
+    // Returned to give up a game
+    int RESIGN = -1;
+
+    // What a strategy may look at, the cards of a position that are face up
+    interface View {
+        int size(int column);
+
+        int faceDown(int column);
+
+        // Get the code of a face-up card, face-down cards are not shown
+        int card(int column, int index);
+
+        // Find where the movable run at the end of a column begins
+        int runStart(int column);
+
+        int getStockCount();
+
+        int getNumDeals();
+
+        int getNumStacks();
+
+        int getNumMoves();
+
+        // Write every legal move into the buffer from offset on and return
+        // how many there are, a deal comes last when it is allowed
+        int legalMoves(int[] moves, int offset);
+    }
+
+    // Start a new game of a numbered deal
+    default void newGame(long deal) {}
+
+    // Choose the next move, Moves.DEAL or RESIGN
+    int chooseMove(View view);
+}
@@ -0,0 +1,256 @@
+/*
+The Tournament class plays strategies against each other without any
+windows. Every strategy plays the same numbered deals at 1, 2 and 4 suits
+on every core, and for each it reports the win rate, the average number of
+moves and completed stacks per game and how many games were played per
+second. A game that reaches the move limit counts as lost.
+Strategies are named random, greedy, or by the class name of any other
+Strategy with a constructor taking no arguments.
+
+Usage: java Tournament [strategy ...] [-games N] [-first N] [-suits 1,2,4]
+                       [-threads N] [-limit N]
+*/
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongConsumer;
+
+public class Tournament {
+    // Deals played by one task, enough to keep stealing cheap
+    private static final int BATCH = 64;
+    private static final int DEFAULT_LIMIT = 1000;
+
+    private final long games, first;
+    private final int moveLimit;
+    private final ForkJoinPool pool;
+
+    // Constructor for a tournament of games deals each, numbered from first
+    public Tournament(long games, long first, int moveLimit, int threads) {
+        this.games = games;
+        this.first = first;
+        this.moveLimit = moveLimit;
+        pool = new ForkJoinPool(threads);
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> names = new ArrayList<>();
+        long games = 10_000, first = 1;
+        int[] suits = {1, 2, 4};
+        int threads = Runtime.getRuntime().availableProcessors();
+        int limit = DEFAULT_LIMIT;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-games":
+                    games = Long.parseLong(args[++i]);
+                    break;
+                case "-first":
+                    first = Long.parseLong(args[++i]);
+                    break;
+                case "-suits":
+                    String[] parts = args[++i].split(",");
+                    suits = new int[parts.length];
+                    for (int j = 0; j < parts.length; j++) {
+                        suits[j] = Integer.parseInt(parts[j]);
+                        if (suits[j] != 1 && suits[j] != 2 && suits[j] != 4)
+                            throw new IllegalArgumentException("Suits must be 1, 2 or 4");
+                    }
+                    break;
+                case "-threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "-limit":
+                    limit = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    names.add(args[i]);
+                    break;
+            }
+        }
+        if (names.isEmpty()) {
+            names.add("random");
+            names.add("greedy");
+        }
+        for (String name : names)
+            create(name);
+
+        Tournament tournament = new Tournament(games, first, limit, threads);
+        System.out.printf("%d deals from #%d on %d threads%n", games, first, threads);
+        System.out.printf("%-16s %5s %8s %10s %10s %12s%n", "strategy", "suits",
+                          "win %", "avg moves", "avg stacks", "games/s");
+        try {
+            for (int s : suits)
+                for (String name : names)
+                    System.out.println(tournament.play(name, s));
+        }
+        finally {
+            tournament.pool.shutdown();
+        }
+    }
+
+    // Create a strategy from its name
+    static Strategy create(String name) throws ReflectiveOperationException {
+        switch (name) {
+            case "random":
+                return new RandomStrategy();
+            case "greedy":
+                return new GreedyStrategy();
+            default:
+                return (Strategy) Class.forName(name).getDeclaredConstructor()
+                                       .newInstance();
+        }
+    }
+
+    // The totals of one strategy at one suit count
+    public static class Result {
+        private final String strategy;
+        private final int suits;
+        private final long games, wins, moves, stacks;
+        private final double seconds;
+
+        Result(String strategy, int suits, long games, long wins, long moves,
+               long stacks, double seconds) {
+            this.strategy = strategy;
+            this.suits = suits;
+            this.games = games;
+            this.wins = wins;
+            this.moves = moves;
+            this.stacks = stacks;
+            this.seconds = seconds;
+        }
+
+        public double getWinRate() {
+            return (double) wins / games;
+        }
+
+        public double getAverageMoves() {
+            return (double) moves / games;
+        }
+
+        public double getAverageStacks() {
+            return (double) stacks / games;
+        }
+
+        public double getGamesPerSecond() {
+            return games / Math.max(seconds, 1e-9);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-16s %5d %8.2f %10.1f %10.2f %12.0f", strategy,
+                                 suits, 100 * getWinRate(), getAverageMoves(),
+                                 getAverageStacks(), getGamesPerSecond());
+        }
+    }
+
+    // Play every deal of the tournament with one strategy at one suit count
+    public Result play(String name, int suits) {
+        LongAdder wins = new LongAdder(), moves = new LongAdder(),
+                  stacks = new LongAdder();
+        // Each worker keeps its own strategy and view
+        ThreadLocal<Player> players = ThreadLocal.withInitial(() -> {
+            try {
+                return new Player(create(name));
+            }
+            catch (ReflectiveOperationException e) {
+                throw new IllegalArgumentException("No strategy " + name, e);
+            }
+        });
+        long begin = System.nanoTime();
+        pool.invoke(new Range(first, first + games - 1, deal -> {
+            Board board = players.get().play(deal, suits);
+            if (board.isWon())
+                wins.increment();
+            moves.add(board.getNumMoves());
+            stacks.add(board.getNumStacks());
+        }));
+        double seconds = (System.nanoTime() - begin) / 1e9;
+        return new Result(name, suits, games, wins.sum(), moves.sum(), stacks.sum(),
+                          seconds);
+    }
+
+    // A strategy with the view it is shown, used by one thread at a time
+    private class Player implements Strategy.View {
+        private final Strategy strategy;
+        private Board board;
+
+        Player(Strategy strategy) {
+            this.strategy = strategy;
+        }
+
+        // Play a deal until it is won, the strategy resigns or plays an
+        // illegal move, or the move limit is reached
+        Board play(long deal, int suits) {
+            board = new Board(new Deck(suits, deal).getCards());
+            strategy.newGame(deal);
+            while (!board.isWon() && board.getNumMoves() < moveLimit) {
+                int move = strategy.chooseMove(this);
+                if (move == Strategy.RESIGN || !board.play(move))
+                    break;
+            }
+            return board;
+        }
+
+        public int size(int column) {
+            return board.size(column);
+        }
+
+        public int faceDown(int column) {
+            return board.faceDown(column);
+        }
+
+        public int card(int column, int index) {
+            if (!board.isFaceUp(column, index))
+                throw new IllegalArgumentException("Card is face down");
+            return board.card(column, index);
+        }
+
+        public int runStart(int column) {
+            return board.runStart(column);
+        }
+
+        public int getStockCount() {
+            return Board.DECK_SIZE - board.getStockIndex();
+        }
+
+        public int getNumDeals() {
+            return board.getNumDeals();
+        }
+
+        public int getNumStacks() {
+            return board.getNumStacks();
+        }
+
+        public int getNumMoves() {
+            return board.getNumMoves();
+        }
+
+        public int legalMoves(int[] moves, int offset) {
+            return board.legalMoves(moves, offset);
+        }
+    }
+
+    // A range of deals, split in halves until a task is a small batch
+    private static class Range extends RecursiveAction {
+        private final long first, last;
+        private final LongConsumer game;
+
+        Range(long first, long last, LongConsumer game) {
+            this.first = first;
+            this.last = last;
+            this.game = game;
+        }
+
+        protected void compute() {
+            if (last - first < BATCH) {
+                for (long deal = first; deal <= last; deal++)
+                    game.accept(deal);
+                return;
+            }
+            long middle = first + (last - first) / 2;
+            invokeAll(new Range(first, middle, game), new Range(middle + 1, last, game));
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/*
+The TranspositionTable class remembers the hashes of positions that a search
+has already reached. It has a fixed number of slots grouped in buckets, and
+when a bucket is full the oldest hash in it is evicted, so memory stays flat
+however long the search runs.
+*/
+
+import java.util.Arrays;
+
+public class TranspositionTable {
+    private static final int WAYS = 4;
+
+    private final long[] keys;
+    private final byte[] oldest;
+    private final int mask;
+    private long evictions;
+
+    // Constructor for a table holding at least the given number of hashes
+    public TranspositionTable(int capacity) {
+        int buckets = Integer.highestOneBit(Math.max(1, capacity / WAYS - 1)) << 1;
+        keys = new long[buckets * WAYS];
+        oldest = new byte[buckets];
+        mask = buckets - 1;
+    }
+
+    // Add a hash, returns false if it was already in the table
+    public boolean add(long key) {
+        // Zero marks an empty slot
+        if (key == 0)
+            key = 1;
+        int bucket = (int) (key ^ (key >>> 32)) & mask;
+        int base = bucket * WAYS;
+        for (int i = 0; i < WAYS; i++) {
+            if (keys[base + i] == key)
+                return false;
+            if (keys[base + i] == 0) {
+                keys[base + i] = key;
+                return true;
+            }
+        }
+        // The slots of a bucket are filled in order, so the oldest hash is
+        // replaced round robin
+        int victim = oldest[bucket];
+        keys[base + victim] = key;
+        oldest[bucket] = (byte) ((victim + 1) % WAYS);
+        evictions++;
+        return true;
+    }
+
+    // Forget every hash
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(oldest, (byte) 0);
+        evictions = 0;
+    }
+
+    public int capacity() {
+        return keys.length;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+}